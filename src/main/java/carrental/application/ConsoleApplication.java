@@ -5,12 +5,46 @@ import carrental.domain.service.*;
 import carrental.infrastructure.*;
 import carrental.console.ConsoleUi;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
 public class ConsoleApplication {
-    public static void main(String[] args) {
-        CarRepository carRepository = new InMemoryCarRepository();
-        CustomerRepository customerRepository = new InMemoryCustomerRepository();
-        RentalRepository rentalRepository = new InMemoryRentalRepository();
-        ViolationRepository violationRepository = new InMemoryViolationRepository();
+    public static void main(String[] args) throws IOException {
+        Path importDir = null;
+        Path dataDir = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if ("--import".equals(args[i])) {
+                importDir = Paths.get(args[i + 1]);
+            } else if ("--data".equals(args[i])) {
+                dataDir = Paths.get(args[i + 1]);
+            }
+        }
+
+        // --data <dir> keeps every change in a write-ahead log under dir, snapshotted every minute, and
+        // restores the snapshot plus the log written since on startup
+        DurableStorage storage = dataDir != null ? DurableStorage.open(dataDir) : null;
+        WriteAheadLog log = storage != null ? storage.log() : null;
+        CarRepository carRepository = new InMemoryCarRepository(log);
+        CustomerRepository customerRepository = new InMemoryCustomerRepository(log);
+        RentalRepository rentalRepository = new InMemoryRentalRepository(log);
+        ViolationRepository violationRepository = new InMemoryViolationRepository(log);
+        if (storage != null) {
+            long records = storage.recover(carRepository, customerRepository, rentalRepository, violationRepository);
+            System.out.println("Replayed " + records + " logged changes from " + dataDir);
+            storage.startPeriodicSnapshots(1, TimeUnit.MINUTES);
+        }
+
+        // --import <dir> bulk-loads cars.csv, customers.csv, rentals.csv and violations.csv from dir when present
+        if (importDir != null) {
+            CsvBulkLoader loader = new CsvBulkLoader(carRepository, customerRepository, rentalRepository, violationRepository);
+            importFile(importDir, "cars", loader::loadCars);
+            importFile(importDir, "customers", loader::loadCustomers);
+            importFile(importDir, "rentals", loader::loadRentals);
+            importFile(importDir, "violations", loader::loadViolations);
+        }
 
         CarServise carService = new CarServise(carRepository);
         CustomerService customerService = new CustomerService(customerRepository);
@@ -20,4 +54,16 @@ public class ConsoleApplication {
         ConsoleUi consoleUI = new ConsoleUi(carService, customerService, rentalService, violationService);
         consoleUI.start();
     }
-}
\ No newline at end of file
+
+    private interface CsvLoad {
+        CsvBulkLoader.Report load(Path csv, Path rejects) throws IOException;
+    }
+
+    private static void importFile(Path dir, String name, CsvLoad load) throws IOException {
+        Path csv = dir.resolve(name + ".csv");
+        if (Files.isRegularFile(csv)) {
+            CsvBulkLoader.Report report = load.load(csv, dir.resolve(name + ".rejects.tsv"));
+            System.out.println("Imported " + name + ": " + report);
+        }
+    }
+}
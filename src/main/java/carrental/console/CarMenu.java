@@ -1,12 +1,15 @@
 package carrental.console;
 
 import carrental.domain.model.Car;
+import carrental.domain.model.CarStatus;
 import carrental.domain.service.CarServise;
 
 import java.util.List;
 import java.util.Scanner;
 
 public class CarMenu {
+    private static final int PAGE_SIZE = 20;
+
     private final Scanner scanner;
     private final CarServise carService;
 
@@ -90,7 +93,7 @@ public class CarMenu {
 
     private void viewAllCars() {
         System.out.println("\n--- ALL CARS ---");
-        List<Car> cars = carService.getAllCars();
+        List<Car> cars = carService.getCarsPage(null, PAGE_SIZE);
 
         if (cars.isEmpty()) {
             System.out.println("No cars found in the system.");
@@ -98,10 +101,16 @@ public class CarMenu {
             System.out.println("ID | VIN | License | Brand | Model | Status | Rate/hr");
             System.out.println("------------------------------------------------------");
 
-            for (Car car : cars) {
-                System.out.printf("%-3d | %-17s | %-10s | %-10s | %-10s | %-10s | $%d%n",
-                        car.getCarId(), car.getVin(), car.getLicensePlate(),
-                        car.getBrand(), car.getModel(), car.getStatus(), car.getHourlyRate());
+            while (!cars.isEmpty()) {
+                for (Car car : cars) {
+                    System.out.printf("%-3d | %-17s | %-10s | %-10s | %-10s | %-10s | $%d%n",
+                            car.getCarId(), car.getVin(), car.getLicensePlate(),
+                            car.getBrand(), car.getModel(), car.getStatus(), car.getHourlyRate());
+                }
+                if (cars.size() < PAGE_SIZE || !showNextPage()) {
+                    break;
+                }
+                cars = carService.getCarsPage(cars.get(cars.size() - 1).getCarId(), PAGE_SIZE);
             }
         }
         pressEnterToContinue();
@@ -127,7 +136,7 @@ public class CarMenu {
 
     private void viewAvailableCars() {
         System.out.println("\n--- AVAILABLE CARS ---");
-        List<Car> availableCars = carService.getCarsByStatus("AVAILABLE");
+        List<Car> availableCars = carService.getCarsByStatus(CarStatus.AVAILABLE);
 
         if (availableCars.isEmpty()) {
             System.out.println("No available cars at the moment.");
@@ -172,6 +181,11 @@ public class CarMenu {
         System.out.println("  Hourly Rate: $" + car.getHourlyRate());
     }
 
+    private boolean showNextPage() {
+        System.out.print("Press Enter for the next page, or 0 to stop: ");
+        return !"0".equals(scanner.nextLine().trim());
+    }
+
     private void pressEnterToContinue() {
         System.out.print("Press Enter to continue...");
         scanner.nextLine();
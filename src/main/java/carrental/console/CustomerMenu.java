@@ -7,6 +7,8 @@ import java.util.List;
 import java.util.Scanner;
 
 public class CustomerMenu {
+    private static final int PAGE_SIZE = 20;
+
     private final Scanner scanner;
     private final CustomerService customerService;
 
@@ -87,7 +89,7 @@ public class CustomerMenu {
 
     private void viewAllCustomers() {
         System.out.println("\n--- ALL CUSTOMERS ---");
-        List<Customer> customers = customerService.getAllCustomers();
+        List<Customer> customers = customerService.getCustomersPage(null, PAGE_SIZE);
 
         if (customers.isEmpty()) {
             System.out.println("No customers found in the system.");
@@ -95,13 +97,20 @@ public class CustomerMenu {
             System.out.println("ID | Name | Driver License | Phone | Address");
             System.out.println("--------------------------------------------");
 
-            for (Customer customer : customers) {
-                System.out.printf("%-3d | %-20s | %-15d | %-15d | %s%n",
-                        customer.getCustomerId(),
-                        truncateString(customer.getFullName(), 20),
-                        customer.getDriverLicense(),
-                        customer.getPhone(),
-                        truncateString(customer.getAddress(), 20));
+            while (!customers.isEmpty()) {
+                for (Customer customer : customers) {
+                    System.out.printf("%-3d | %-20s | %-15d | %-15d | %s%n",
+                            customer.getCustomerId(),
+                            truncateString(customer.getFullName(), 20),
+                            customer.getDriverLicense(),
+                            customer.getPhone(),
+                            truncateString(customer.getAddress(), 20));
+                }
+                if (customers.size() < PAGE_SIZE || !showNextPage()) {
+                    break;
+                }
+                customers = customerService.getCustomersPage(
+                        customers.get(customers.size() - 1).getCustomerId(), PAGE_SIZE);
             }
         }
         pressEnterToContinue();
@@ -177,6 +186,11 @@ public class CustomerMenu {
         return str.substring(0, maxLength - 3) + "...";
     }
 
+    private boolean showNextPage() {
+        System.out.print("Press Enter for the next page, or 0 to stop: ");
+        return !"0".equals(scanner.nextLine().trim());
+    }
+
     private void pressEnterToContinue() {
         System.out.print("Press Enter to continue...");
         scanner.nextLine();
@@ -2,6 +2,7 @@ package carrental.console;
 
 import carrental.domain.model.Rental;
 import carrental.domain.model.Car;
+import carrental.domain.model.CarStatus;
 import carrental.domain.service.RentalService;
 import carrental.domain.service.CarServise;
 import carrental.domain.service.CustomerService;
@@ -10,6 +11,8 @@ import java.util.List;
 import java.util.Scanner;
 
 public class RentalMenu {
+    private static final int PAGE_SIZE = 20;
+
     private final Scanner scanner;
     private final RentalService rentalService;
     private final CarServise carService;
@@ -65,7 +68,7 @@ public class RentalMenu {
             System.out.println("\n--- CREATE NEW RENTAL ---");
 
             // Показать доступные автомобили
-            List<Car> availableCars = carService.getCarsByStatus("AVAILABLE");
+            List<Car> availableCars = carService.getCarsByStatus(CarStatus.AVAILABLE);
             if (availableCars.isEmpty()) {
                 System.out.println("No available cars for rental.");
                 pressEnterToContinue();
@@ -109,7 +112,7 @@ public class RentalMenu {
 
     private void viewAllRentals() {
         System.out.println("\n--- ALL RENTALS ---");
-        List<Rental> rentals = rentalService.getAllRentals();
+        List<Rental> rentals = rentalService.getRentalsPage(null, PAGE_SIZE);
 
         if (rentals.isEmpty()) {
             System.out.println("No rentals found in the system.");
@@ -117,11 +120,17 @@ public class RentalMenu {
             System.out.println("ID | Customer ID | Car ID | Start Date | End Date | Cost | Deposit | Status");
             System.out.println("----------------------------------------------------------------------------");
 
-            for (Rental rental : rentals) {
-                System.out.printf("%-3d | %-11d | %-6d | %-10s | %-8s | $%-4d | %-8s | %s%n",
-                        rental.getRentalId(), rental.getCustomerId(), rental.getCarId(),
-                        rental.getDateStart(), rental.getDateEnd(), rental.getCostFact(),
-                        rental.getDepositeStatus(), rental.getStatus());
+            while (!rentals.isEmpty()) {
+                for (Rental rental : rentals) {
+                    System.out.printf("%-3d | %-11d | %-6d | %-10s | %-8s | $%-4d | %-8s | %s%n",
+                            rental.getRentalId(), rental.getCustomerId(), rental.getCarId(),
+                            rental.getDateStart(), rental.getDateEnd(), rental.getCostFact(),
+                            rental.getDepositeStatus(), rental.getStatus());
+                }
+                if (rentals.size() < PAGE_SIZE || !showNextPage()) {
+                    break;
+                }
+                rentals = rentalService.getRentalsPage(rentals.get(rentals.size() - 1).getRentalId(), PAGE_SIZE);
             }
         }
         pressEnterToContinue();
@@ -164,7 +173,7 @@ public class RentalMenu {
             if (rentalService.completeRental(rentalId)) {
                 System.out.println("Rental completed successfully.");
             } else {
-                System.out.println("Rental not found with ID: " + rentalId);
+                System.out.println("No active rental found with ID: " + rentalId);
             }
         } catch (NumberFormatException e) {
             System.out.println("Invalid ID format.");
@@ -172,6 +181,11 @@ public class RentalMenu {
         pressEnterToContinue();
     }
 
+    private boolean showNextPage() {
+        System.out.print("Press Enter for the next page, or 0 to stop: ");
+        return !"0".equals(scanner.nextLine().trim());
+    }
+
     private void pressEnterToContinue() {
         System.out.print("Press Enter to continue...");
         scanner.nextLine();
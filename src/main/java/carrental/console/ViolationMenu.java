@@ -8,6 +8,8 @@ import java.util.List;
 import java.util.Scanner;
 
 public class ViolationMenu {
+    private static final int PAGE_SIZE = 20;
+
     private final Scanner scanner;
     private final ViolationService violationService;
     private final RentalService rentalService;
@@ -90,7 +92,7 @@ public class ViolationMenu {
 
     private void viewAllViolations() {
         System.out.println("\n--- ALL VIOLATIONS ---");
-        List<Violation> violations = violationService.getAllViolations();
+        List<Violation> violations = violationService.getViolationsPage(null, PAGE_SIZE);
 
         if (violations.isEmpty()) {
             System.out.println("No violations found in the system.");
@@ -98,12 +100,19 @@ public class ViolationMenu {
             System.out.println("ID | Rental ID | Date/Time | Description | Fine | Status");
             System.out.println("---------------------------------------------------------");
 
-            for (Violation violation : violations) {
-                System.out.printf("%-3d | %-9d | %-10s | %-20s | $%-4d | %s%n",
-                        violation.getViolationId(), violation.getRentalId(),
-                        violation.getDateTime(),
-                        truncateString(violation.getDescription(), 20),
-                        violation.getFineAmount(), violation.getStatus());
+            while (!violations.isEmpty()) {
+                for (Violation violation : violations) {
+                    System.out.printf("%-3d | %-9d | %-10s | %-20s | $%-4d | %s%n",
+                            violation.getViolationId(), violation.getRentalId(),
+                            violation.getDateTime(),
+                            truncateString(violation.getDescription(), 20),
+                            violation.getFineAmount(), violation.getStatus());
+                }
+                if (violations.size() < PAGE_SIZE || !showNextPage()) {
+                    break;
+                }
+                violations = violationService.getViolationsPage(
+                        violations.get(violations.size() - 1).getViolationId(), PAGE_SIZE);
             }
         }
         pressEnterToContinue();
@@ -184,6 +193,11 @@ public class ViolationMenu {
         return str.substring(0, maxLength - 3) + "...";
     }
 
+    private boolean showNextPage() {
+        System.out.print("Press Enter for the next page, or 0 to stop: ");
+        return !"0".equals(scanner.nextLine().trim());
+    }
+
     private void pressEnterToContinue() {
         System.out.print("Press Enter to continue...");
         scanner.nextLine();
@@ -6,11 +6,18 @@ public class Car {
     private final String licensePlate;
     private final String brand;
     private final String model;
-    private final String status;
+    private final CarStatus status;
     private final Integer hourlyRate;
+    private final long version;
 
     public Car(Integer carId, String vin, String licensePlate, String brand,
-               String model, String status, Integer hourlyRate) {
+               String model, CarStatus status, Integer hourlyRate) {
+        this(carId, vin, licensePlate, brand, model, status, hourlyRate, 0);
+    }
+
+    // version is assigned by the repository on every write; 0 means the car was never stored
+    public Car(Integer carId, String vin, String licensePlate, String brand,
+               String model, CarStatus status, Integer hourlyRate, long version) {
         this.carId = carId;
         this.vin = vin;
         this.licensePlate = licensePlate;
@@ -18,6 +25,11 @@ public class Car {
         this.model = model;
         this.status = status;
         this.hourlyRate = hourlyRate;
+        this.version = version;
+    }
+
+    public Car withVersion(long version) {
+        return new Car(carId, vin, licensePlate, brand, model, status, hourlyRate, version);
     }
 
     // Геттеры...
@@ -26,6 +38,7 @@ public class Car {
     public String getLicensePlate() { return licensePlate; }
     public String getBrand() { return brand; }
     public String getModel() { return model; }
-    public String getStatus() { return status; }
+    public CarStatus getStatus() { return status; }
     public Integer getHourlyRate() { return hourlyRate; }
+    public long getVersion() { return version; }
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package carrental.domain.model;
+
+public enum CarStatus {
+    AVAILABLE, RENTED, MAINTENANCE;
+
+    private static final CarStatus[] VALUES = values();
+
+    public static CarStatus parse(String value) {
+        if (value != null) {
+            String trimmed = value.trim();
+            for (CarStatus status : VALUES) {
+                if (status.name().equalsIgnoreCase(trimmed)) {
+                    return status;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Invalid car status. Must be: AVAILABLE, RENTED, or MAINTENANCE");
+    }
+}
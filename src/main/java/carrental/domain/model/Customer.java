@@ -7,15 +7,26 @@ public class Customer {
     private final Long driverLicense;
     private final Long phone;
     private final String address;
+    private final long version;
 
     public Customer(Integer customerId, String fullName, Long passport,
                     Long driverLicense, Long phone, String address) {
+        this(customerId, fullName, passport, driverLicense, phone, address, 0);
+    }
+
+    public Customer(Integer customerId, String fullName, Long passport,
+                    Long driverLicense, Long phone, String address, long version) {
         this.customerId = customerId;
         this.fullName = fullName;
         this.passport = passport;
         this.driverLicense = driverLicense;
         this.phone = phone;
         this.address = address;
+        this.version = version;
+    }
+
+    public Customer withVersion(long version) {
+        return new Customer(customerId, fullName, passport, driverLicense, phone, address, version);
     }
 
     // Getters
@@ -25,4 +36,5 @@ public class Customer {
     public Long getDriverLicense() { return driverLicense; }
     public Long getPhone() { return phone; }
     public String getAddress() { return address; }
+    public long getVersion() { return version; }
 }
\ No newline at end of file
@@ -0,0 +1,142 @@
+package carrental.domain.model;
+
+import java.time.LocalDate;
+
+/**
+ * Allocation-free parsing of the "YYYY-MM-DD" and "YYYY-MM-DD HH:MM" formats used across the domain.
+ * Values are returned as epoch days or epoch minutes; INVALID signals malformed input instead of an exception.
+ */
+public final class Dates {
+    public static final long INVALID = Long.MIN_VALUE;
+    public static final long MINUTES_PER_DAY = 24 * 60;
+
+    private static final int DATE_LENGTH = 10;
+    private static final int DATE_TIME_LENGTH = 16;
+    private static final long DAYS_0000_TO_1970 = 719528L;
+
+    private Dates() {
+    }
+
+    public static long parseEpochDay(CharSequence text) {
+        if (text == null || text.length() != DATE_LENGTH) {
+            return INVALID;
+        }
+        return parseDatePart(text);
+    }
+
+    public static long parseEpochMinute(CharSequence text) {
+        if (text == null || text.length() != DATE_TIME_LENGTH || text.charAt(DATE_LENGTH) != ' '
+                || text.charAt(13) != ':') {
+            return INVALID;
+        }
+        long day = parseDatePart(text);
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        if (day == INVALID || hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return INVALID;
+        }
+        return day * MINUTES_PER_DAY + hour * 60 + minute;
+    }
+
+    public static boolean isValidDate(CharSequence text) {
+        return parseEpochDay(text) != INVALID;
+    }
+
+    public static boolean isValidDateTime(CharSequence text) {
+        return parseEpochMinute(text) != INVALID;
+    }
+
+    // Inverse of parseEpochDay for every value it can return
+    public static String formatEpochDay(long epochDay) {
+        char[] text = new char[DATE_LENGTH];
+        formatDatePart(text, epochDay);
+        return new String(text);
+    }
+
+    // Inverse of parseEpochMinute for every value it can return
+    public static String formatEpochMinute(long epochMinute) {
+        char[] text = new char[DATE_TIME_LENGTH];
+        formatDatePart(text, Math.floorDiv(epochMinute, MINUTES_PER_DAY));
+        int minuteOfDay = (int) Math.floorMod(epochMinute, MINUTES_PER_DAY);
+        text[DATE_LENGTH] = ' ';
+        formatDigits(text, 11, 2, minuteOfDay / 60);
+        text[13] = ':';
+        formatDigits(text, 14, 2, minuteOfDay % 60);
+        return new String(text);
+    }
+
+    private static long parseDatePart(CharSequence text) {
+        if (text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return INVALID;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return INVALID;
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    // Returns -1 if any character in the range is not an ASCII digit
+    private static int digits(CharSequence text, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static void formatDatePart(char[] text, long epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        formatDigits(text, 0, 4, date.getYear());
+        text[4] = '-';
+        formatDigits(text, 5, 2, date.getMonthValue());
+        text[7] = '-';
+        formatDigits(text, 8, 2, date.getDayOfMonth());
+    }
+
+    private static void formatDigits(char[] text, int offset, int count, int value) {
+        for (int i = offset + count - 1; i >= offset; i--) {
+            text[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    // Same arithmetic as LocalDate.toEpochDay, restricted to non-negative years
+    private static long toEpochDay(int year, int month, int day) {
+        long y = year;
+        long total = 365 * y + (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+}
@@ -0,0 +1,19 @@
+package carrental.domain.model;
+
+public enum DepositStatus {
+    PAID, REFUNDED, PENDING;
+
+    private static final DepositStatus[] VALUES = values();
+
+    public static DepositStatus parse(String value) {
+        if (value != null) {
+            String trimmed = value.trim();
+            for (DepositStatus status : VALUES) {
+                if (status.name().equalsIgnoreCase(trimmed)) {
+                    return status;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Invalid deposit status. Must be: PAID, REFUNDED, or PENDING");
+    }
+}
@@ -6,21 +6,48 @@ public class Rental {
     private final Integer carId;
     private final String dateStart;
     private final String dateEnd;
+    private final long startEpochDay;
+    private final long endEpochDay;
     private final Integer costFact;
-    private final String depositeStatus;
-    private final String status;
+    private final DepositStatus depositeStatus;
+    private final RentalStatus status;
+    private final long version;
 
     public Rental(Integer rentalId, Integer customerId, Integer carId,
                   String dateStart, String dateEnd, Integer costFact,
-                  String depositeStatus, String status) {
+                  DepositStatus depositeStatus, RentalStatus status) {
+        this(rentalId, customerId, carId, dateStart, dateEnd,
+                Dates.parseEpochDay(dateStart), Dates.parseEpochDay(dateEnd),
+                costFact, depositeStatus, status);
+    }
+
+    // For callers that already parsed the dates; Dates.INVALID marks a date that did not parse
+    public Rental(Integer rentalId, Integer customerId, Integer carId,
+                  String dateStart, String dateEnd, long startEpochDay, long endEpochDay,
+                  Integer costFact, DepositStatus depositeStatus, RentalStatus status) {
+        this(rentalId, customerId, carId, dateStart, dateEnd, startEpochDay, endEpochDay,
+                costFact, depositeStatus, status, 0);
+    }
+
+    public Rental(Integer rentalId, Integer customerId, Integer carId,
+                  String dateStart, String dateEnd, long startEpochDay, long endEpochDay,
+                  Integer costFact, DepositStatus depositeStatus, RentalStatus status, long version) {
         this.rentalId = rentalId;
         this.customerId = customerId;
         this.carId = carId;
         this.dateStart = dateStart;
         this.dateEnd = dateEnd;
+        this.startEpochDay = startEpochDay;
+        this.endEpochDay = endEpochDay;
         this.costFact = costFact;
         this.depositeStatus = depositeStatus;
         this.status = status;
+        this.version = version;
+    }
+
+    public Rental withVersion(long version) {
+        return new Rental(rentalId, customerId, carId, dateStart, dateEnd, startEpochDay, endEpochDay,
+                costFact, depositeStatus, status, version);
     }
 
     // Getters
@@ -29,7 +56,10 @@ public class Rental {
     public Integer getCarId() { return carId; }
     public String getDateStart() { return dateStart; }
     public String getDateEnd() { return dateEnd; }
+    public long getStartEpochDay() { return startEpochDay; }
+    public long getEndEpochDay() { return endEpochDay; }
     public Integer getCostFact() { return costFact; }
-    public String getDepositeStatus() { return depositeStatus; }
-    public String getStatus() { return status; }
+    public DepositStatus getDepositeStatus() { return depositeStatus; }
+    public RentalStatus getStatus() { return status; }
+    public long getVersion() { return version; }
 }
\ No newline at end of file
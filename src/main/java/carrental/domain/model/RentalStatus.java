@@ -0,0 +1,19 @@
+package carrental.domain.model;
+
+public enum RentalStatus {
+    ACTIVE, COMPLETED;
+
+    private static final RentalStatus[] VALUES = values();
+
+    public static RentalStatus parse(String value) {
+        if (value != null) {
+            String trimmed = value.trim();
+            for (RentalStatus status : VALUES) {
+                if (status.name().equalsIgnoreCase(trimmed)) {
+                    return status;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Invalid rental status. Must be: ACTIVE or COMPLETED");
+    }
+}
@@ -4,25 +4,46 @@ public class Violation {
     private final Integer violationId;
     private final Integer rentalId;
     private final String dateTime;
+    private final long epochMinute;
     private final String description;
     private final Integer fineAmount;
-    private final String status;
+    private final ViolationStatus status;
+    private final long version;
 
     public Violation(Integer violationId, Integer rentalId, String dateTime,
-                     String description, Integer fineAmount, String status) {
+                     String description, Integer fineAmount, ViolationStatus status) {
+        this(violationId, rentalId, dateTime, Dates.parseEpochMinute(dateTime), description, fineAmount, status);
+    }
+
+    // Used when the epoch minute is already known, e.g. when copying a stored violation
+    public Violation(Integer violationId, Integer rentalId, String dateTime, long epochMinute,
+                     String description, Integer fineAmount, ViolationStatus status) {
+        this(violationId, rentalId, dateTime, epochMinute, description, fineAmount, status, 0);
+    }
+
+    public Violation(Integer violationId, Integer rentalId, String dateTime, long epochMinute,
+                     String description, Integer fineAmount, ViolationStatus status, long version) {
         this.violationId = violationId;
         this.rentalId = rentalId;
         this.dateTime = dateTime;
+        this.epochMinute = epochMinute;
         this.description = description;
         this.fineAmount = fineAmount;
         this.status = status;
+        this.version = version;
+    }
+
+    public Violation withVersion(long version) {
+        return new Violation(violationId, rentalId, dateTime, epochMinute, description, fineAmount, status, version);
     }
 
     // Getters
     public Integer getViolationId() { return violationId; }
     public Integer getRentalId() { return rentalId; }
     public String getDateTime() { return dateTime; }
+    public long getEpochMinute() { return epochMinute; }
     public String getDescription() { return description; }
     public Integer getFineAmount() { return fineAmount; }
-    public String getStatus() { return status; }
+    public ViolationStatus getStatus() { return status; }
+    public long getVersion() { return version; }
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package carrental.domain.model;
+
+public enum ViolationStatus {
+    PENDING, PAID, RESOLVED;
+
+    private static final ViolationStatus[] VALUES = values();
+
+    public static ViolationStatus parse(String value) {
+        if (value != null) {
+            String trimmed = value.trim();
+            for (ViolationStatus status : VALUES) {
+                if (status.name().equalsIgnoreCase(trimmed)) {
+                    return status;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Invalid status. Must be: PENDING, PAID, or RESOLVED");
+    }
+}
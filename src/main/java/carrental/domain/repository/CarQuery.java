@@ -0,0 +1,112 @@
+package carrental.domain.repository;
+
+import carrental.domain.model.Car;
+import carrental.domain.model.CarStatus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+public class CarQuery {
+    public enum SortBy { ID, HOURLY_RATE }
+
+    private final CarStatus status;
+    private final String brand;
+    private final Integer maxHourlyRate;
+    private final SortBy sortBy;
+    private final boolean descending;
+    private final int limit;
+
+    private CarQuery(Builder builder) {
+        this.status = builder.status;
+        this.brand = builder.brand;
+        this.maxHourlyRate = builder.maxHourlyRate;
+        this.sortBy = builder.sortBy;
+        this.descending = builder.descending;
+        this.limit = builder.limit;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public CarStatus getStatus() { return status; }
+    public String getBrand() { return brand; }
+    public Integer getMaxHourlyRate() { return maxHourlyRate; }
+    public SortBy getSortBy() { return sortBy; }
+    public boolean isDescending() { return descending; }
+    public int getLimit() { return limit; }
+
+    public boolean matches(Car car) {
+        return (status == null || car.getStatus() == status)
+                && (brand == null || brand.equalsIgnoreCase(car.getBrand()))
+                && (maxHourlyRate == null || (car.getHourlyRate() != null && car.getHourlyRate() <= maxHourlyRate));
+    }
+
+    public Comparator<Car> comparator() {
+        Comparator<Car> comparator = sortBy == SortBy.HOURLY_RATE
+                ? Comparator.comparing(Car::getHourlyRate, Comparator.nullsFirst(Comparator.<Integer>naturalOrder()))
+                : Comparator.comparing(Car::getCarId);
+        return descending ? comparator.reversed() : comparator;
+    }
+
+    public List<String> filters() {
+        List<String> filters = new ArrayList<>();
+        if (status != null) {
+            filters.add("status");
+        }
+        if (brand != null) {
+            filters.add("brand");
+        }
+        if (maxHourlyRate != null) {
+            filters.add("hourlyRate");
+        }
+        return filters;
+    }
+
+    public String order() {
+        return sortBy + (descending ? " desc" : " asc");
+    }
+
+    public static class Builder {
+        private CarStatus status;
+        private String brand;
+        private Integer maxHourlyRate;
+        private SortBy sortBy = SortBy.ID;
+        private boolean descending;
+        private int limit = Integer.MAX_VALUE;
+
+        public Builder status(CarStatus status) {
+            this.status = status;
+            return this;
+        }
+
+        public Builder brand(String brand) {
+            this.brand = brand;
+            return this;
+        }
+
+        public Builder maxHourlyRate(Integer maxHourlyRate) {
+            this.maxHourlyRate = maxHourlyRate;
+            return this;
+        }
+
+        public Builder sortBy(SortBy sortBy, boolean descending) {
+            this.sortBy = sortBy;
+            this.descending = descending;
+            return this;
+        }
+
+        public Builder limit(int limit) {
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Limit must be positive");
+            }
+            this.limit = limit;
+            return this;
+        }
+
+        public CarQuery build() {
+            return new CarQuery(this);
+        }
+    }
+}
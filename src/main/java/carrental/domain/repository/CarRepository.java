@@ -1,18 +1,43 @@
 package carrental.domain.repository;
 
 import carrental.domain.model.Car;
+import carrental.domain.model.CarStatus;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface CarRepository {
     Car save(Car car);
+    // Bulk loading: saveUnindexed stores a row without maintaining secondary indexes, and rebuildIndexes builds
+    // them in one pass afterwards. Queries may miss unindexed rows until then, so only use this while loading
+    Car saveUnindexed(Car car);
+    void rebuildIndexes();
+    // Stores car exactly as given, version included, skipping indexes and change listeners; for recovery from
+    // a snapshot or the change log, which calls rebuildIndexes() once everything is loaded
+    void restore(Car car);
+    // Version-checked save: replaces the stored car only if its version still equals car.getVersion(),
+    // otherwise throws OptimisticLockException; empty if no car has that id
+    Optional<Car> update(Car car);
     Optional<Car> findById(Integer id);
+    // Pre-sizes storage for ids up to maxId, for bulk loaders that know how many rows are coming
+    void ensureCapacity(int maxId);
+    // Multi-get keyed by id; ids that are null or not stored are simply absent from the result
+    Map<Integer, Car> findAllById(Collection<Integer> ids);
     List<Car> findAll();
+    // Keyset pagination in ascending id order; pass the last id of the previous page, or null for the first
+    List<Car> findPage(Integer afterId, int limit);
+    Stream<Car> streamAll();
     void delete(Integer id);
     Optional<Car> findByVin(String vin);
-    List<Car> findByStatus(String status);
+    List<Car> findByStatus(CarStatus status);
     List<Car> findByBrand(String brand);
     boolean existsByVin(String vin);
-    boolean updateStatus(Integer carId, String status);
+    boolean updateStatus(Integer carId, CarStatus status);
+    // Applies the change only if the current value still equals expected; false if it did not or the id is unknown
+    boolean compareAndSetStatus(Integer carId, CarStatus expected, CarStatus status);
+    List<Car> query(CarQuery query);
+    QueryPlan explain(CarQuery query);
 }
\ No newline at end of file
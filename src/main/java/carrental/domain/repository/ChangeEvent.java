@@ -0,0 +1,37 @@
+package carrental.domain.repository;
+
+/**
+ * One mutation of a stored entity. Sequence numbers are assigned by the feed in publish order and increase
+ * by one per event; for a single entity they follow the order in which its writes were applied. The entity
+ * is the stored value after the change, or the removed value for DELETED.
+ */
+public final class ChangeEvent {
+    public enum Source { CAR, CUSTOMER, RENTAL, VIOLATION }
+
+    public enum Type { SAVED, UPDATED, STATUS_CHANGED, FINE_CHANGED, DELETED }
+
+    private final long sequence;
+    private final Source source;
+    private final Type type;
+    private final Integer entityId;
+    private final Object entity;
+
+    public ChangeEvent(long sequence, Source source, Type type, Integer entityId, Object entity) {
+        this.sequence = sequence;
+        this.source = source;
+        this.type = type;
+        this.entityId = entityId;
+        this.entity = entity;
+    }
+
+    public long getSequence() { return sequence; }
+    public Source getSource() { return source; }
+    public Type getType() { return type; }
+    public Integer getEntityId() { return entityId; }
+    public Object getEntity() { return entity; }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + source + " " + entityId + " " + type;
+    }
+}
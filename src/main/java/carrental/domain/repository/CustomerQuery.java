@@ -0,0 +1,104 @@
+package carrental.domain.repository;
+
+import carrental.domain.model.Customer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+public class CustomerQuery {
+    public enum SortBy { ID, NAME }
+
+    private final String nameContains;
+    private final String addressContains;
+    private final SortBy sortBy;
+    private final boolean descending;
+    private final int limit;
+
+    private CustomerQuery(Builder builder) {
+        this.nameContains = builder.nameContains;
+        this.addressContains = builder.addressContains;
+        this.sortBy = builder.sortBy;
+        this.descending = builder.descending;
+        this.limit = builder.limit;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String getNameContains() { return nameContains; }
+    public String getAddressContains() { return addressContains; }
+    public SortBy getSortBy() { return sortBy; }
+    public boolean isDescending() { return descending; }
+    public int getLimit() { return limit; }
+
+    public boolean matches(Customer customer) {
+        return contains(customer.getFullName(), nameContains)
+                && contains(customer.getAddress(), addressContains);
+    }
+
+    public Comparator<Customer> comparator() {
+        Comparator<Customer> comparator = sortBy == SortBy.NAME
+                ? Comparator.comparing(Customer::getFullName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+                : Comparator.comparing(Customer::getCustomerId);
+        return descending ? comparator.reversed() : comparator;
+    }
+
+    public List<String> filters() {
+        List<String> filters = new ArrayList<>();
+        if (nameContains != null) {
+            filters.add("fullName");
+        }
+        if (addressContains != null) {
+            filters.add("address");
+        }
+        return filters;
+    }
+
+    public String order() {
+        return sortBy + (descending ? " desc" : " asc");
+    }
+
+    private static boolean contains(String value, String term) {
+        return term == null
+                || (value != null && value.toLowerCase(Locale.ROOT).contains(term.toLowerCase(Locale.ROOT)));
+    }
+
+    public static class Builder {
+        private String nameContains;
+        private String addressContains;
+        private SortBy sortBy = SortBy.ID;
+        private boolean descending;
+        private int limit = Integer.MAX_VALUE;
+
+        public Builder nameContains(String nameContains) {
+            this.nameContains = nameContains;
+            return this;
+        }
+
+        public Builder addressContains(String addressContains) {
+            this.addressContains = addressContains;
+            return this;
+        }
+
+        public Builder sortBy(SortBy sortBy, boolean descending) {
+            this.sortBy = sortBy;
+            this.descending = descending;
+            return this;
+        }
+
+        public Builder limit(int limit) {
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Limit must be positive");
+            }
+            this.limit = limit;
+            return this;
+        }
+
+        public CustomerQuery build() {
+            return new CustomerQuery(this);
+        }
+    }
+}
@@ -2,13 +2,24 @@ package carrental.domain.repository;
 
 import carrental.domain.model.Customer;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface CustomerRepository {
     Customer save(Customer customer);
+    Customer saveUnindexed(Customer customer);
+    void rebuildIndexes();
+    void restore(Customer customer);
+    Optional<Customer> update(Customer customer);
     Optional<Customer> findById(Integer id);
+    void ensureCapacity(int maxId);
+    Map<Integer, Customer> findAllById(Collection<Integer> ids);
     List<Customer> findAll();
+    List<Customer> findPage(Integer afterId, int limit);
+    Stream<Customer> streamAll();
     void delete(Integer id);
     Optional<Customer> findByDriverLicense(Long driverLicense);
     Optional<Customer> findByPassport(Long passport);
@@ -16,4 +27,6 @@ public interface CustomerRepository {
     boolean existsByDriverLicense(Long driverLicense);
     boolean existsByPassport(Long passport);
     List<Customer> findByNameContaining(String name);
+    List<Customer> query(CustomerQuery query);
+    QueryPlan explain(CustomerQuery query);
 }
\ No newline at end of file
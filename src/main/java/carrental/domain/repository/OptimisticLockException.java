@@ -0,0 +1,11 @@
+package carrental.domain.repository;
+
+// Thrown by a version-checked update when the stored entity changed after the caller read it
+public class OptimisticLockException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public OptimisticLockException(String entity, Integer id, long expectedVersion, long actualVersion) {
+        super(entity + " " + id + " was modified concurrently (expected version " + expectedVersion
+                + ", found " + actualVersion + ")");
+    }
+}
@@ -0,0 +1,45 @@
+package carrental.domain.repository;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * How a repository answers a query: the index that produced the candidate rows (or a full scan),
+ * how many candidates it produced and which filters were checked row by row afterwards.
+ */
+public class QueryPlan {
+    public static final String FULL_SCAN = "full scan";
+
+    private final String access;
+    private final int candidateRows;
+    private final List<String> residualFilters;
+    private final String order;
+    private final int limit;
+
+    public QueryPlan(String access, int candidateRows, List<String> residualFilters, String order, int limit) {
+        this.access = access;
+        this.candidateRows = candidateRows;
+        this.residualFilters = Collections.unmodifiableList(residualFilters);
+        this.order = order;
+        this.limit = limit;
+    }
+
+    public String getAccess() { return access; }
+    public int getCandidateRows() { return candidateRows; }
+    public List<String> getResidualFilters() { return residualFilters; }
+    public String getOrder() { return order; }
+    public int getLimit() { return limit; }
+
+    public boolean usesIndex() {
+        return !FULL_SCAN.equals(access);
+    }
+
+    @Override
+    public String toString() {
+        return "access=" + access
+                + " candidates=" + candidateRows
+                + " residual=" + residualFilters
+                + " order=" + order
+                + (limit < Integer.MAX_VALUE ? " limit=" + limit : "");
+    }
+}
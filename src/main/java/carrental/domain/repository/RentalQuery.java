@@ -0,0 +1,178 @@
+package carrental.domain.repository;
+
+import carrental.domain.model.Dates;
+import carrental.domain.model.DepositStatus;
+import carrental.domain.model.Rental;
+import carrental.domain.model.RentalStatus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+public class RentalQuery {
+    public enum SortBy { ID, START_DATE, COST }
+
+    private final Integer customerId;
+    private final Integer carId;
+    private final RentalStatus status;
+    private final DepositStatus depositStatus;
+    private final boolean dateRange;
+    private final long startFromDay;
+    private final long startToDay;
+    private final Integer minCost;
+    private final SortBy sortBy;
+    private final boolean descending;
+    private final int limit;
+
+    private RentalQuery(Builder builder) {
+        this.customerId = builder.customerId;
+        this.carId = builder.carId;
+        this.status = builder.status;
+        this.depositStatus = builder.depositStatus;
+        this.dateRange = builder.dateRange;
+        this.startFromDay = builder.startFromDay;
+        this.startToDay = builder.startToDay;
+        this.minCost = builder.minCost;
+        this.sortBy = builder.sortBy;
+        this.descending = builder.descending;
+        this.limit = builder.limit;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Integer getCustomerId() { return customerId; }
+    public Integer getCarId() { return carId; }
+    public RentalStatus getStatus() { return status; }
+    public DepositStatus getDepositStatus() { return depositStatus; }
+    public boolean hasDateRange() { return dateRange; }
+    public long getStartFromDay() { return startFromDay; }
+    public long getStartToDay() { return startToDay; }
+    public Integer getMinCost() { return minCost; }
+    public SortBy getSortBy() { return sortBy; }
+    public boolean isDescending() { return descending; }
+    public int getLimit() { return limit; }
+
+    public boolean matches(Rental rental) {
+        return (customerId == null || customerId.equals(rental.getCustomerId()))
+                && (carId == null || carId.equals(rental.getCarId()))
+                && (status == null || rental.getStatus() == status)
+                && (depositStatus == null || rental.getDepositeStatus() == depositStatus)
+                && (!dateRange || (rental.getStartEpochDay() != Dates.INVALID
+                        && rental.getStartEpochDay() >= startFromDay && rental.getStartEpochDay() <= startToDay))
+                && (minCost == null || (rental.getCostFact() != null && rental.getCostFact() >= minCost));
+    }
+
+    public Comparator<Rental> comparator() {
+        Comparator<Rental> comparator;
+        switch (sortBy) {
+            case START_DATE:
+                comparator = Comparator.comparingLong(Rental::getStartEpochDay);
+                break;
+            case COST:
+                comparator = Comparator.comparing(Rental::getCostFact, Comparator.nullsFirst(Comparator.<Integer>naturalOrder()));
+                break;
+            default:
+                comparator = Comparator.comparing(Rental::getRentalId);
+        }
+        return descending ? comparator.reversed() : comparator;
+    }
+
+    public List<String> filters() {
+        List<String> filters = new ArrayList<>();
+        if (customerId != null) {
+            filters.add("customerId");
+        }
+        if (carId != null) {
+            filters.add("carId");
+        }
+        if (status != null) {
+            filters.add("status");
+        }
+        if (depositStatus != null) {
+            filters.add("depositStatus");
+        }
+        if (dateRange) {
+            filters.add("dateStart");
+        }
+        if (minCost != null) {
+            filters.add("costFact");
+        }
+        return filters;
+    }
+
+    public String order() {
+        return sortBy + (descending ? " desc" : " asc");
+    }
+
+    public static class Builder {
+        private Integer customerId;
+        private Integer carId;
+        private RentalStatus status;
+        private DepositStatus depositStatus;
+        private boolean dateRange;
+        private long startFromDay;
+        private long startToDay;
+        private Integer minCost;
+        private SortBy sortBy = SortBy.ID;
+        private boolean descending;
+        private int limit = Integer.MAX_VALUE;
+
+        public Builder customerId(Integer customerId) {
+            this.customerId = customerId;
+            return this;
+        }
+
+        public Builder carId(Integer carId) {
+            this.carId = carId;
+            return this;
+        }
+
+        public Builder status(RentalStatus status) {
+            this.status = status;
+            return this;
+        }
+
+        public Builder depositStatus(DepositStatus depositStatus) {
+            this.depositStatus = depositStatus;
+            return this;
+        }
+
+        // Both bounds inclusive, matched against the rental start date
+        public Builder startDateBetween(String from, String to) {
+            long fromDay = Dates.parseEpochDay(from);
+            long toDay = Dates.parseEpochDay(to);
+            if (fromDay == Dates.INVALID || toDay == Dates.INVALID) {
+                throw new IllegalArgumentException("Invalid date format. Use YYYY-MM-DD");
+            }
+            this.dateRange = true;
+            this.startFromDay = fromDay;
+            this.startToDay = toDay;
+            return this;
+        }
+
+        public Builder minCost(Integer minCost) {
+            this.minCost = minCost;
+            return this;
+        }
+
+        public Builder sortBy(SortBy sortBy, boolean descending) {
+            this.sortBy = sortBy;
+            this.descending = descending;
+            return this;
+        }
+
+        public Builder limit(int limit) {
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Limit must be positive");
+            }
+            this.limit = limit;
+            return this;
+        }
+
+        public RentalQuery build() {
+            return new RentalQuery(this);
+        }
+    }
+}
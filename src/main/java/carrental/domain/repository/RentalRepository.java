@@ -1,24 +1,43 @@
 package carrental.domain.repository;
 
+import carrental.domain.model.DepositStatus;
 import carrental.domain.model.Rental;
+import carrental.domain.model.RentalStatus;
+
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface RentalRepository {
 
     Rental save(Rental rental);
+    Rental saveUnindexed(Rental rental);
+    void rebuildIndexes();
+    void restore(Rental rental);
+    Optional<Rental> update(Rental rental);
     Optional<Rental> findById(Integer id);
+    void ensureCapacity(int maxId);
+    Map<Integer, Rental> findAllById(Collection<Integer> ids);
     List<Rental> findAll();
+    List<Rental> findPage(Integer afterId, int limit);
+    Stream<Rental> streamAll();
     void delete(Integer id);
     List<Rental> findByCustomerId(Integer customerId);
     List<Rental> findByCarId(Integer carId);
     List<Rental> findActiveRentals();
     List<Rental> findCompletedRentals();
-    List<Rental> findByStatus(String status);
+    List<Rental> findByStatus(RentalStatus status);
     boolean isCarCurrentlyRented(Integer carId);
     boolean hasActiveRentals(Integer customerId);
-    boolean updateStatus(Integer rentalId, String status);
-    boolean updateDepositStatus(Integer rentalId, String depositStatus);
+    int countActiveRentals(Integer customerId);
+    boolean updateStatus(Integer rentalId, RentalStatus status);
+    boolean updateDepositStatus(Integer rentalId, DepositStatus depositStatus);
+    boolean compareAndSetStatus(Integer rentalId, RentalStatus expected, RentalStatus status);
+    boolean compareAndSetDepositStatus(Integer rentalId, DepositStatus expected, DepositStatus depositStatus);
     List<Rental> findByDateRange(String startDate, String endDate);
-    List<Rental> findByCustomerIdAndStatus(Integer customerId, String status);
+    List<Rental> findByCustomerIdAndStatus(Integer customerId, RentalStatus status);
+    List<Rental> query(RentalQuery query);
+    QueryPlan explain(RentalQuery query);
 }
\ No newline at end of file
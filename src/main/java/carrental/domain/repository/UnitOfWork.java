@@ -0,0 +1,125 @@
+package carrental.domain.repository;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Groups writes to several repositories so they take effect together or not at all. Each step is applied
+// immediately under the repository's own per-id locking and records how to undo itself; if the work fails,
+// the undo log is replayed newest first. There is no global lock, so concurrent readers can observe a unit
+// of work half-applied. Undo actions should be conditional (compare-and-set) so they never overwrite a
+// change another thread made in between.
+//
+// Completion actions run once the outermost unit has finished. If one fails after the work itself succeeded,
+// the unit is rolled back and that failure is thrown. A nested unit hands its completion actions, and once it
+// has committed its undo log, to the unit around it.
+public final class UnitOfWork {
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    private final Deque<Runnable> undoLog = new ArrayDeque<>();
+    private final Map<Object, Runnable> completionActions = new LinkedHashMap<>();
+    private boolean rollingBack;
+
+    private UnitOfWork() {
+    }
+
+    public static <T> T run(Function<UnitOfWork, T> work) {
+        UnitOfWork unitOfWork = new UnitOfWork();
+        UnitOfWork outer = CURRENT.get();
+        CURRENT.set(unitOfWork);
+        T result;
+        try {
+            result = work.apply(unitOfWork);
+        } catch (RuntimeException | Error e) {
+            unitOfWork.rollback(e);
+            unitOfWork.finish(outer, e);
+            throw e;
+        }
+        unitOfWork.finish(outer, null);
+        return result;
+    }
+
+    // The unit of work running on this thread, or null
+    public static UnitOfWork current() {
+        return CURRENT.get();
+    }
+
+    // Runs action once this unit of work has finished, committed or rolled back; an action already registered
+    // under the same key is not added again. Lets per-write work such as a durability wait run once per unit.
+    public void onCompletion(Object key, Runnable action) {
+        completionActions.putIfAbsent(key, action);
+    }
+
+    // Runs write and, if the unit of work later fails, hands its result to undo
+    public <T> T step(Supplier<T> write, Consumer<? super T> undo) {
+        T result = write.get();
+        undoLog.push(() -> undo.accept(result));
+        return result;
+    }
+
+    public void onRollback(Runnable undo) {
+        undoLog.push(undo);
+    }
+
+    // True while this unit replays its undo log; listeners let those writes through and do not wait for them
+    public boolean isRollingBack() {
+        return rollingBack;
+    }
+
+    private void finish(UnitOfWork outer, Throwable failure) {
+        if (outer != null) {
+            CURRENT.set(outer);
+            if (failure == null) {
+                for (Iterator<Runnable> undo = undoLog.descendingIterator(); undo.hasNext(); ) {
+                    outer.undoLog.push(undo.next());
+                }
+            }
+            completionActions.forEach(outer::onCompletion);
+            return;
+        }
+        CURRENT.remove();
+        RuntimeException completionFailure = null;
+        for (Runnable action : completionActions.values()) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                if (failure != null) {
+                    failure.addSuppressed(e);
+                } else if (completionFailure == null) {
+                    completionFailure = e;
+                    CURRENT.set(this);
+                    try {
+                        rollback(e);
+                    } finally {
+                        CURRENT.remove();
+                    }
+                } else {
+                    completionFailure.addSuppressed(e);
+                }
+            }
+        }
+        if (completionFailure != null) {
+            throw completionFailure;
+        }
+    }
+
+    private void rollback(Throwable failure) {
+        rollingBack = true;
+        try {
+            while (!undoLog.isEmpty()) {
+                try {
+                    undoLog.pop().run();
+                } catch (RuntimeException e) {
+                    failure.addSuppressed(e);
+                }
+            }
+        } finally {
+            rollingBack = false;
+        }
+    }
+}
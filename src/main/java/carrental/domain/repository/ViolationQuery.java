@@ -0,0 +1,152 @@
+package carrental.domain.repository;
+
+import carrental.domain.model.Dates;
+import carrental.domain.model.Violation;
+import carrental.domain.model.ViolationStatus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+public class ViolationQuery {
+    public enum SortBy { ID, DATE_TIME, FINE_AMOUNT }
+
+    private final Integer rentalId;
+    private final ViolationStatus status;
+    private final boolean dateRange;
+    private final long fromMinute;
+    private final long toMinuteExclusive;
+    private final Integer fineAmountGreaterThan;
+    private final SortBy sortBy;
+    private final boolean descending;
+    private final int limit;
+
+    private ViolationQuery(Builder builder) {
+        this.rentalId = builder.rentalId;
+        this.status = builder.status;
+        this.dateRange = builder.dateRange;
+        this.fromMinute = builder.fromMinute;
+        this.toMinuteExclusive = builder.toMinuteExclusive;
+        this.fineAmountGreaterThan = builder.fineAmountGreaterThan;
+        this.sortBy = builder.sortBy;
+        this.descending = builder.descending;
+        this.limit = builder.limit;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Integer getRentalId() { return rentalId; }
+    public ViolationStatus getStatus() { return status; }
+    public boolean hasDateRange() { return dateRange; }
+    public long getFromMinute() { return fromMinute; }
+    public long getToMinuteExclusive() { return toMinuteExclusive; }
+    public Integer getFineAmountGreaterThan() { return fineAmountGreaterThan; }
+    public SortBy getSortBy() { return sortBy; }
+    public boolean isDescending() { return descending; }
+    public int getLimit() { return limit; }
+
+    public boolean matches(Violation violation) {
+        return (rentalId == null || rentalId.equals(violation.getRentalId()))
+                && (status == null || violation.getStatus() == status)
+                && (!dateRange || (violation.getEpochMinute() != Dates.INVALID
+                        && violation.getEpochMinute() >= fromMinute && violation.getEpochMinute() < toMinuteExclusive))
+                && (fineAmountGreaterThan == null
+                        || (violation.getFineAmount() != null && violation.getFineAmount() > fineAmountGreaterThan));
+    }
+
+    public Comparator<Violation> comparator() {
+        Comparator<Violation> comparator;
+        switch (sortBy) {
+            case DATE_TIME:
+                comparator = Comparator.comparingLong(Violation::getEpochMinute);
+                break;
+            case FINE_AMOUNT:
+                comparator = Comparator.comparing(Violation::getFineAmount, Comparator.nullsFirst(Comparator.<Integer>naturalOrder()));
+                break;
+            default:
+                comparator = Comparator.comparing(Violation::getViolationId);
+        }
+        return descending ? comparator.reversed() : comparator;
+    }
+
+    public List<String> filters() {
+        List<String> filters = new ArrayList<>();
+        if (rentalId != null) {
+            filters.add("rentalId");
+        }
+        if (status != null) {
+            filters.add("status");
+        }
+        if (dateRange) {
+            filters.add("dateTime");
+        }
+        if (fineAmountGreaterThan != null) {
+            filters.add("fineAmount");
+        }
+        return filters;
+    }
+
+    public String order() {
+        return sortBy + (descending ? " desc" : " asc");
+    }
+
+    public static class Builder {
+        private Integer rentalId;
+        private ViolationStatus status;
+        private boolean dateRange;
+        private long fromMinute;
+        private long toMinuteExclusive;
+        private Integer fineAmountGreaterThan;
+        private SortBy sortBy = SortBy.ID;
+        private boolean descending;
+        private int limit = Integer.MAX_VALUE;
+
+        public Builder rentalId(Integer rentalId) {
+            this.rentalId = rentalId;
+            return this;
+        }
+
+        public Builder status(ViolationStatus status) {
+            this.status = status;
+            return this;
+        }
+
+        // Whole days, both inclusive, as in ViolationRepository.findByDateRange
+        public Builder dateBetween(String from, String to) {
+            long fromDay = Dates.parseEpochDay(from);
+            long toDay = Dates.parseEpochDay(to);
+            if (fromDay == Dates.INVALID || toDay == Dates.INVALID) {
+                throw new IllegalArgumentException("Invalid date format. Use YYYY-MM-DD");
+            }
+            this.dateRange = true;
+            this.fromMinute = fromDay * Dates.MINUTES_PER_DAY;
+            this.toMinuteExclusive = (toDay + 1) * Dates.MINUTES_PER_DAY;
+            return this;
+        }
+
+        public Builder fineAmountGreaterThan(Integer amount) {
+            this.fineAmountGreaterThan = amount;
+            return this;
+        }
+
+        public Builder sortBy(SortBy sortBy, boolean descending) {
+            this.sortBy = sortBy;
+            this.descending = descending;
+            return this;
+        }
+
+        public Builder limit(int limit) {
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Limit must be positive");
+            }
+            this.limit = limit;
+            return this;
+        }
+
+        public ViolationQuery build() {
+            return new ViolationQuery(this);
+        }
+    }
+}
@@ -1,25 +1,43 @@
 package carrental.domain.repository;
 
 import carrental.domain.model.Violation;
+import carrental.domain.model.ViolationStatus;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ViolationRepository {
 
     Violation save(Violation violation);
+    Violation saveUnindexed(Violation violation);
+    void rebuildIndexes();
+    void restore(Violation violation);
+    Optional<Violation> update(Violation violation);
     Optional<Violation> findById(Integer id);
+    void ensureCapacity(int maxId);
     List<Violation> findAll();
+    List<Violation> findPage(Integer afterId, int limit);
+    Stream<Violation> streamAll();
     void delete(Integer id);
     List<Violation> findByRentalId(Integer rentalId);
-    List<Violation> findByStatus(String status);
+    List<Violation> findByStatus(ViolationStatus status);
     List<Violation> findPendingViolations();
     List<Violation> findPaidViolations();
     List<Violation> findByFineAmountGreaterThan(Integer minAmount);
     List<Violation> findByDateRange(String startDate, String endDate);
-    boolean updateStatus(Integer violationId, String status);
+    boolean updateStatus(Integer violationId, ViolationStatus status);
     boolean updateFineAmount(Integer violationId, Integer fineAmount);
+    boolean compareAndSetStatus(Integer violationId, ViolationStatus expected, ViolationStatus status);
+    boolean compareAndSetFineAmount(Integer violationId, Integer expected, Integer fineAmount);
+    // Moves every PENDING violation of the given rentals to status in one atomic step; returns how many changed
+    int settlePending(Collection<Integer> rentalIds, ViolationStatus status);
     boolean existsByRentalId(Integer rentalId);
     Integer getTotalFinesByRentalId(Integer rentalId);
     Integer getTotalPendingFinesByRentalId(Integer rentalId);
-    List<Violation> findByRentalIdAndStatus(Integer rentalId, String status);
+    boolean hasPendingViolations(Integer rentalId);
+    List<Violation> findByRentalIdAndStatus(Integer rentalId, ViolationStatus status);
+    List<Violation> query(ViolationQuery query);
+    QueryPlan explain(ViolationQuery query);
 }
\ No newline at end of file
@@ -0,0 +1,101 @@
+package carrental.domain.service;
+
+import carrental.domain.repository.RentalRepository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Per-customer active rental limit as an O(1) lock-free reserve/release. A customer's count is the ACTIVE
+// rentals in the rental repository plus the bookings that have reserved a place but not saved yet. Only the
+// reservations are counted here; saved rentals are read from the repository's per-customer index, so a rental
+// completed or deleted anywhere frees its place at once, and a customer with no booking in flight has no entry.
+public class ActiveRentalCounters {
+    // Counter state: reservations in flight in the low 32 bits, a change count in the high 32 bits so that a
+    // compare-and-set fails whenever another booking reserved or released in between
+    private static final long RETIRED = -1L;
+    private static final long PENDING_MASK = 0xffffffffL;
+    private static final long CHANGE = 1L << 32;
+    private static final int MAX_WAITS = 64;
+
+    private final RentalRepository rentalRepository;
+    private final int limit;
+    private final Map<Integer, AtomicLong> reservations = new ConcurrentHashMap<>();
+
+    public ActiveRentalCounters(RentalRepository rentalRepository, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Active rental limit must be positive");
+        }
+        this.rentalRepository = rentalRepository;
+        this.limit = limit;
+    }
+
+    // Reserves a place for one booking. The caller must release it once the booking has been saved or has failed
+    public boolean tryAcquire(Integer customerId) {
+        int waits = 0;
+        while (true) {
+            AtomicLong counter = reservations.computeIfAbsent(customerId, id -> new AtomicLong());
+            long state = counter.get();
+            if (state == RETIRED) {
+                reservations.remove(customerId, counter);
+                continue;
+            }
+            // Read after the state: a booking that released since saved its rental first, so it is counted here
+            int active = rentalRepository.countActiveRentals(customerId);
+            long pending = state & PENDING_MASK;
+            if (active + pending >= limit) {
+                if (pending == 0) {
+                    retire(customerId, counter, state);
+                    return false;
+                }
+                // A booking that has saved but not yet released is counted twice for a moment; give it the
+                // time to release before refusing
+                if (++waits > MAX_WAITS) {
+                    return false;
+                }
+                Thread.yield();
+                continue;
+            }
+            if (counter.compareAndSet(state, state + CHANGE + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release(Integer customerId) {
+        AtomicLong counter = reservations.get(customerId);
+        if (counter == null) {
+            throw new IllegalStateException("No rental reserved for customer " + customerId);
+        }
+        while (true) {
+            long state = counter.get();
+            long pending = state & PENDING_MASK;
+            if (state == RETIRED || pending == 0) {
+                throw new IllegalStateException("No rental reserved for customer " + customerId);
+            }
+            if (pending == 1) {
+                if (retire(customerId, counter, state)) {
+                    return;
+                }
+            } else if (counter.compareAndSet(state, state + CHANGE - 1)) {
+                return;
+            }
+        }
+    }
+
+    public int activeRentals(Integer customerId) {
+        AtomicLong counter = reservations.get(customerId);
+        long state = counter != null ? counter.get() : RETIRED;
+        long pending = state != RETIRED ? state & PENDING_MASK : 0;
+        return rentalRepository.countActiveRentals(customerId) + (int) pending;
+    }
+
+    // Drops a counter whose last reservation is gone, so the map only holds customers with a booking in flight
+    private boolean retire(Integer customerId, AtomicLong counter, long state) {
+        if (!counter.compareAndSet(state, RETIRED)) {
+            return false;
+        }
+        reservations.remove(customerId, counter);
+        return true;
+    }
+}
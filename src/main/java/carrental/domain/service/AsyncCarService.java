@@ -0,0 +1,65 @@
+package carrental.domain.service;
+
+import carrental.domain.model.Car;
+import carrental.domain.model.CarStatus;
+import carrental.domain.repository.CarQuery;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// Non-blocking view of a service: each call runs the synchronous operation on the executor and returns a future.
+// Validation and state errors complete the future exceptionally rather than being thrown at the caller, so a
+// front end can fan out many calls without parking a thread per request. The executor is the caller's to own
+// and shut down; ServiceExecutors.newDefault() is the usual choice.
+public class AsyncCarService {
+    private final CarServise carService;
+    private final Executor executor;
+
+    public AsyncCarService(CarServise carService, Executor executor) {
+        if (carService == null) {
+            throw new IllegalArgumentException("CarServise is required");
+        }
+        this.carService = carService;
+        this.executor = ServiceExecutors.requireExecutor(executor);
+    }
+
+    public CarServise sync() {
+        return carService;
+    }
+
+    public CompletableFuture<Car> addCarAsync(String vin, String licensePlate, String brand, String model,
+                                              String status, Integer hourlyRate) {
+        return ServiceExecutors.supply(executor, () ->
+                carService.addCar(vin, licensePlate, brand, model, status, hourlyRate));
+    }
+
+    public CompletableFuture<Optional<Car>> getCarAsync(Integer id) {
+        return ServiceExecutors.supply(executor, () -> carService.getCar(id));
+    }
+
+    public CompletableFuture<List<Car>> getAllCarsAsync() {
+        return ServiceExecutors.supply(executor, () -> carService.getAllCars());
+    }
+
+    public CompletableFuture<List<Car>> getCarsPageAsync(Integer afterId, int limit) {
+        return ServiceExecutors.supply(executor, () -> carService.getCarsPage(afterId, limit));
+    }
+
+    public CompletableFuture<List<Car>> getCarsByStatusAsync(CarStatus status) {
+        return ServiceExecutors.supply(executor, () -> carService.getCarsByStatus(status));
+    }
+
+    public CompletableFuture<List<Car>> searchCarsAsync(CarQuery query) {
+        return ServiceExecutors.supply(executor, () -> carService.searchCars(query));
+    }
+
+    public CompletableFuture<Boolean> updateCarStatusAsync(Integer carId, String status) {
+        return ServiceExecutors.supply(executor, () -> carService.updateCarStatus(carId, status));
+    }
+
+    public CompletableFuture<Boolean> deleteCarAsync(Integer id) {
+        return ServiceExecutors.supply(executor, () -> carService.deleteCar(id));
+    }
+}
@@ -0,0 +1,78 @@
+package carrental.domain.service;
+
+import carrental.domain.model.Customer;
+import carrental.domain.repository.CustomerQuery;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+public class AsyncCustomerService {
+    private final CustomerService customerService;
+    private final Executor executor;
+
+    public AsyncCustomerService(CustomerService customerService, Executor executor) {
+        if (customerService == null) {
+            throw new IllegalArgumentException("CustomerService is required");
+        }
+        this.customerService = customerService;
+        this.executor = ServiceExecutors.requireExecutor(executor);
+    }
+
+    public CustomerService sync() {
+        return customerService;
+    }
+
+    public CompletableFuture<Customer> addCustomerAsync(String fullName, Long passport, Long driverLicense,
+                                                        Long phone, String address) {
+        return ServiceExecutors.supply(executor, () ->
+                customerService.addCustomer(fullName, passport, driverLicense, phone, address));
+    }
+
+    public CompletableFuture<Optional<Customer>> getCustomerAsync(Integer id) {
+        return ServiceExecutors.supply(executor, () -> customerService.getCustomer(id));
+    }
+
+    public CompletableFuture<List<Customer>> getAllCustomersAsync() {
+        return ServiceExecutors.supply(executor, () -> customerService.getAllCustomers());
+    }
+
+    public CompletableFuture<List<Customer>> getCustomersPageAsync(Integer afterId, int limit) {
+        return ServiceExecutors.supply(executor, () -> customerService.getCustomersPage(afterId, limit));
+    }
+
+    public CompletableFuture<Optional<Customer>> getCustomerByDriverLicenseAsync(Long driverLicense) {
+        return ServiceExecutors.supply(executor, () -> customerService.getCustomerByDriverLicense(driverLicense));
+    }
+
+    public CompletableFuture<Optional<Customer>> getCustomerByPassportAsync(Long passport) {
+        return ServiceExecutors.supply(executor, () -> customerService.getCustomerByPassport(passport));
+    }
+
+    public CompletableFuture<List<Customer>> findCustomersByNameAsync(String name) {
+        return ServiceExecutors.supply(executor, () -> customerService.findCustomersByName(name));
+    }
+
+    public CompletableFuture<List<Customer>> searchCustomersAsync(CustomerQuery query) {
+        return ServiceExecutors.supply(executor, () -> customerService.searchCustomers(query));
+    }
+
+    public CompletableFuture<Boolean> deleteCustomerAsync(Integer id) {
+        return ServiceExecutors.supply(executor, () -> customerService.deleteCustomer(id));
+    }
+
+    public CompletableFuture<Boolean> updateCustomerAsync(Integer customerId, long expectedVersion, String fullName,
+                                                          Long phone, String address) {
+        return ServiceExecutors.supply(executor, () ->
+                customerService.updateCustomer(customerId, expectedVersion, fullName, phone, address));
+    }
+
+    public CompletableFuture<Boolean> canCustomerRentAsync(Integer customerId) {
+        return ServiceExecutors.supply(executor, () -> customerService.canCustomerRent(customerId));
+    }
+
+    public CompletableFuture<Boolean> customerExistsByDriverLicenseAsync(Long driverLicense) {
+        return ServiceExecutors.supply(executor, () -> customerService.customerExistsByDriverLicense(driverLicense));
+    }
+}
@@ -0,0 +1,84 @@
+package carrental.domain.service;
+
+import carrental.domain.model.Rental;
+import carrental.domain.repository.RentalQuery;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+public class AsyncRentalService {
+    private final RentalService rentalService;
+    private final Executor executor;
+
+    public AsyncRentalService(RentalService rentalService, Executor executor) {
+        if (rentalService == null) {
+            throw new IllegalArgumentException("RentalService is required");
+        }
+        this.rentalService = rentalService;
+        this.executor = ServiceExecutors.requireExecutor(executor);
+    }
+
+    public RentalService sync() {
+        return rentalService;
+    }
+
+    public CompletableFuture<Rental> createRentalAsync(Integer customerId, Integer carId, String dateStart,
+                                                       String dateEnd, Integer costFact, String depositeStatus) {
+        return ServiceExecutors.supply(executor, () ->
+                rentalService.createRental(customerId, carId, dateStart, dateEnd, costFact, depositeStatus));
+    }
+
+    public CompletableFuture<List<BatchResult<Rental>>> createRentalsAsync(List<RentalRequest> requests) {
+        return ServiceExecutors.supply(executor, () -> rentalService.createRentals(requests));
+    }
+
+    public CompletableFuture<Optional<Rental>> getRentalAsync(Integer id) {
+        return ServiceExecutors.supply(executor, () -> rentalService.getRental(id));
+    }
+
+    public CompletableFuture<List<Rental>> getAllRentalsAsync() {
+        return ServiceExecutors.supply(executor, () -> rentalService.getAllRentals());
+    }
+
+    public CompletableFuture<List<Rental>> getRentalsPageAsync(Integer afterId, int limit) {
+        return ServiceExecutors.supply(executor, () -> rentalService.getRentalsPage(afterId, limit));
+    }
+
+    public CompletableFuture<List<Rental>> getCustomerRentalsAsync(Integer customerId) {
+        return ServiceExecutors.supply(executor, () -> rentalService.getCustomerRentals(customerId));
+    }
+
+    public CompletableFuture<List<Rental>> getCarRentalsAsync(Integer carId) {
+        return ServiceExecutors.supply(executor, () -> rentalService.getCarRentals(carId));
+    }
+
+    public CompletableFuture<List<Rental>> searchRentalsAsync(RentalQuery query) {
+        return ServiceExecutors.supply(executor, () -> rentalService.searchRentals(query));
+    }
+
+    public CompletableFuture<Boolean> completeRentalAsync(Integer rentalId) {
+        return ServiceExecutors.supply(executor, () -> rentalService.completeRental(rentalId));
+    }
+
+    public CompletableFuture<List<BatchResult<Integer>>> completeRentalsAsync(List<Integer> rentalIds) {
+        return ServiceExecutors.supply(executor, () -> rentalService.completeRentals(rentalIds));
+    }
+
+    public CompletableFuture<List<Rental>> getActiveRentalsAsync() {
+        return ServiceExecutors.supply(executor, () -> rentalService.getActiveRentals());
+    }
+
+    public CompletableFuture<List<Rental>> getCompletedRentalsAsync() {
+        return ServiceExecutors.supply(executor, () -> rentalService.getCompletedRentals());
+    }
+
+    public CompletableFuture<Boolean> updateDepositStatusAsync(Integer rentalId, String depositStatus) {
+        return ServiceExecutors.supply(executor, () -> rentalService.updateDepositStatus(rentalId, depositStatus));
+    }
+
+    public CompletableFuture<Boolean> isCarAvailableForRentalAsync(Integer carId) {
+        return ServiceExecutors.supply(executor, () -> rentalService.isCarAvailableForRental(carId));
+    }
+}
@@ -0,0 +1,101 @@
+package carrental.domain.service;
+
+import carrental.domain.model.Violation;
+import carrental.domain.repository.ViolationQuery;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+public class AsyncViolationService {
+    private final ViolationService violationService;
+    private final Executor executor;
+
+    public AsyncViolationService(ViolationService violationService, Executor executor) {
+        if (violationService == null) {
+            throw new IllegalArgumentException("ViolationService is required");
+        }
+        this.violationService = violationService;
+        this.executor = ServiceExecutors.requireExecutor(executor);
+    }
+
+    public ViolationService sync() {
+        return violationService;
+    }
+
+    public CompletableFuture<Violation> recordViolationAsync(Integer rentalId, String dateTime,
+                                                             String description, Integer fineAmount, String status) {
+        return ServiceExecutors.supply(executor, () ->
+                violationService.recordViolation(rentalId, dateTime, description, fineAmount, status));
+    }
+
+    public CompletableFuture<Optional<Violation>> getViolationAsync(Integer id) {
+        return ServiceExecutors.supply(executor, () -> violationService.getViolation(id));
+    }
+
+    public CompletableFuture<List<Violation>> getAllViolationsAsync() {
+        return ServiceExecutors.supply(executor, () -> violationService.getAllViolations());
+    }
+
+    public CompletableFuture<List<Violation>> getViolationsPageAsync(Integer afterId, int limit) {
+        return ServiceExecutors.supply(executor, () -> violationService.getViolationsPage(afterId, limit));
+    }
+
+    public CompletableFuture<List<Violation>> getViolationsByRentalIdAsync(Integer rentalId) {
+        return ServiceExecutors.supply(executor, () -> violationService.getViolationsByRentalId(rentalId));
+    }
+
+    public CompletableFuture<List<Violation>> getPendingViolationsAsync() {
+        return ServiceExecutors.supply(executor, () -> violationService.getPendingViolations());
+    }
+
+    public CompletableFuture<List<Violation>> getPaidViolationsAsync() {
+        return ServiceExecutors.supply(executor, () -> violationService.getPaidViolations());
+    }
+
+    public CompletableFuture<List<Violation>> searchViolationsAsync(ViolationQuery query) {
+        return ServiceExecutors.supply(executor, () -> violationService.searchViolations(query));
+    }
+
+    public CompletableFuture<Boolean> resolveViolationAsync(Integer violationId) {
+        return ServiceExecutors.supply(executor, () -> violationService.resolveViolation(violationId));
+    }
+
+    public CompletableFuture<Boolean> updateFineAmountAsync(Integer violationId, Integer newFineAmount) {
+        return ServiceExecutors.supply(executor, () -> violationService.updateFineAmount(violationId, newFineAmount));
+    }
+
+    public CompletableFuture<Boolean> deleteViolationAsync(Integer id) {
+        return ServiceExecutors.supply(executor, () -> violationService.deleteViolation(id));
+    }
+
+    public CompletableFuture<Integer> getTotalFinesForRentalAsync(Integer rentalId) {
+        return ServiceExecutors.supply(executor, () -> violationService.getTotalFinesForRental(rentalId));
+    }
+
+    public CompletableFuture<Integer> getTotalPendingFinesForRentalAsync(Integer rentalId) {
+        return ServiceExecutors.supply(executor, () -> violationService.getTotalPendingFinesForRental(rentalId));
+    }
+
+    public CompletableFuture<Boolean> hasPendingViolationsAsync(Integer rentalId) {
+        return ServiceExecutors.supply(executor, () -> violationService.hasPendingViolations(rentalId));
+    }
+
+    public CompletableFuture<List<Violation>> getViolationsWithFineGreaterThanAsync(Integer minAmount) {
+        return ServiceExecutors.supply(executor, () -> violationService.getViolationsWithFineGreaterThan(minAmount));
+    }
+
+    public CompletableFuture<List<Violation>> getViolationsInDateRangeAsync(String startDate, String endDate) {
+        return ServiceExecutors.supply(executor, () -> violationService.getViolationsInDateRange(startDate, endDate));
+    }
+
+    public CompletableFuture<Boolean> resolveAllViolationsForRentalAsync(Integer rentalId) {
+        return ServiceExecutors.supply(executor, () -> violationService.resolveAllViolationsForRental(rentalId));
+    }
+
+    public CompletableFuture<Integer> resolveAllViolationsForRentalsAsync(Collection<Integer> rentalIds) {
+        return ServiceExecutors.supply(executor, () -> violationService.resolveAllViolationsForRentals(rentalIds));
+    }
+}
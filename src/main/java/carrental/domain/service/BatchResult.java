@@ -0,0 +1,29 @@
+package carrental.domain.service;
+
+// Outcome of one item in a batch call: either the value produced or the reason the item was rejected
+public final class BatchResult<T> {
+    private final T value;
+    private final String error;
+
+    private BatchResult(T value, String error) {
+        this.value = value;
+        this.error = error;
+    }
+
+    public static <T> BatchResult<T> success(T value) {
+        return new BatchResult<>(value, null);
+    }
+
+    public static <T> BatchResult<T> failure(String error) {
+        return new BatchResult<>(null, error != null ? error : "Unknown error");
+    }
+
+    public boolean isSuccess() { return error == null; }
+    public T getValue() { return value; }
+    public String getError() { return error; }
+
+    @Override
+    public String toString() {
+        return isSuccess() ? "OK " + value : "FAILED " + error;
+    }
+}
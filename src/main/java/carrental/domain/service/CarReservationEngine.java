@@ -0,0 +1,33 @@
+package carrental.domain.service;
+
+import carrental.domain.model.CarStatus;
+import carrental.domain.repository.CarRepository;
+import carrental.domain.repository.RentalRepository;
+
+// Claims a car for exactly one booking by flipping its status AVAILABLE -> RENTED with a compare-and-set.
+// The claim only contends on the car's own id, so bookings for different cars never wait on each other.
+public class CarReservationEngine {
+    private final CarRepository carRepository;
+    private final RentalRepository rentalRepository;
+
+    public CarReservationEngine(CarRepository carRepository, RentalRepository rentalRepository) {
+        this.carRepository = carRepository;
+        this.rentalRepository = rentalRepository;
+    }
+
+    public boolean tryReserve(Integer carId) {
+        if (!carRepository.compareAndSetStatus(carId, CarStatus.AVAILABLE, CarStatus.RENTED)) {
+            return false;
+        }
+        // A car marked AVAILABLE while an active rental still points at it is inconsistent data; give it back
+        if (rentalRepository.isCarCurrentlyRented(carId)) {
+            carRepository.compareAndSetStatus(carId, CarStatus.RENTED, CarStatus.AVAILABLE);
+            return false;
+        }
+        return true;
+    }
+
+    public void release(Integer carId) {
+        carRepository.compareAndSetStatus(carId, CarStatus.RENTED, CarStatus.AVAILABLE);
+    }
+}
@@ -1,6 +1,8 @@
 package carrental.domain.service;
 
 import carrental.domain.model.Car;
+import carrental.domain.model.CarStatus;
+import carrental.domain.repository.CarQuery;
 import carrental.domain.repository.CarRepository;
 import java.util.List;
 import java.util.Optional;
@@ -18,7 +20,7 @@ public class CarServise {
             throw new IllegalArgumentException("Car with VIN " + vin + " already exists");
         }
 
-        Car car = new Car(null, vin, licensePlate, brand, model, status, hourlyRate);
+        Car car = new Car(null, vin, licensePlate, brand, model, CarStatus.parse(status), hourlyRate);
         return carRepository.save(car);
     }
 
@@ -30,10 +32,56 @@ public class CarServise {
         return carRepository.findAll();
     }
 
-    public List<Car> getCarsByStatus(String status) {
+    public List<Car> getCarsPage(Integer afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return carRepository.findPage(afterId, limit);
+    }
+
+    public List<Car> getCarsByStatus(CarStatus status) {
         return carRepository.findByStatus(status);
     }
 
+    public List<Car> searchCars(CarQuery query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Query is required");
+        }
+        return carRepository.query(query);
+    }
+
+    // Manual status changes such as sending a car to maintenance. RENTED belongs to the booking flow, so it can
+    // be neither set nor cleared here; the check is repeated against the fresh car on every retry
+    public boolean updateCarStatus(Integer carId, String status) {
+        if (carId == null || carId <= 0) {
+            throw new IllegalArgumentException("Invalid car ID");
+        }
+
+        CarStatus target = CarStatus.parse(status);
+        if (target == CarStatus.RENTED) {
+            throw new IllegalArgumentException("A car is marked RENTED by booking a rental");
+        }
+
+        return OptimisticRetry.update(
+                () -> carRepository.findById(carId),
+                car -> {
+                    if (car.getStatus() == CarStatus.RENTED) {
+                        throw new IllegalStateException("Car is rented; complete its rental first");
+                    }
+                    return car.getStatus() == target ? car : new Car(
+                            car.getCarId(),
+                            car.getVin(),
+                            car.getLicensePlate(),
+                            car.getBrand(),
+                            car.getModel(),
+                            target,
+                            car.getHourlyRate(),
+                            car.getVersion());
+                },
+                carRepository::update
+        ).isPresent();
+    }
+
     public boolean deleteCar(Integer id) {
         Optional<Car> car = carRepository.findById(id);
         if (car.isPresent()) {
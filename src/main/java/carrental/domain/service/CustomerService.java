@@ -1,6 +1,7 @@
 package carrental.domain.service;
 
 import carrental.domain.model.Customer;
+import carrental.domain.repository.CustomerQuery;
 import carrental.domain.repository.CustomerRepository;
 
 import java.util.List;
@@ -35,14 +36,7 @@ public class CustomerService {
             throw new IllegalArgumentException("Address is required");
         }
 
-        if (customerRepository.findByDriverLicense(driverLicense).isPresent()) {
-            throw new IllegalArgumentException("Customer with driver license " + driverLicense + " already exists");
-        }
-
-        if (customerRepository.findByPassport(passport).isPresent()) {
-            throw new IllegalArgumentException("Customer with passport " + passport + " already exists");
-        }
-
+        // Duplicate driver license, passport or phone is rejected atomically by the repository
         Customer customer = new Customer(null, fullName, passport, driverLicense, phone, address);
         return customerRepository.save(customer);
     }
@@ -58,6 +52,13 @@ public class CustomerService {
         return customerRepository.findAll();
     }
 
+    public List<Customer> getCustomersPage(Integer afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return customerRepository.findPage(afterId, limit);
+    }
+
     public Optional<Customer> getCustomerByDriverLicense(Long driverLicense) {
         if (driverLicense == null || driverLicense <= 0) {
             throw new IllegalArgumentException("Valid driver license number is required");
@@ -79,6 +80,13 @@ public class CustomerService {
         return customerRepository.findByNameContaining(name);
     }
 
+    public List<Customer> searchCustomers(CustomerQuery query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Query is required");
+        }
+        return customerRepository.query(query);
+    }
+
     public boolean deleteCustomer(Integer id) {
         if (id == null || id <= 0) {
             throw new IllegalArgumentException("Invalid customer ID");
@@ -92,7 +100,10 @@ public class CustomerService {
         return false;
     }
 
-    public boolean updateCustomer(Integer customerId, String fullName, Long phone, String address) {
+    // Applies the edit only if the customer is still at the version it was read at; an edit based on a stale
+    // read fails with OptimisticLockException instead of overwriting the newer data
+    public boolean updateCustomer(Integer customerId, long expectedVersion, String fullName, Long phone,
+                                  String address) {
         if (customerId == null || customerId <= 0) {
             throw new IllegalArgumentException("Invalid customer ID");
         }
@@ -110,19 +121,19 @@ public class CustomerService {
         }
 
         Optional<Customer> existingCustomer = customerRepository.findById(customerId);
-        if (existingCustomer.isPresent()) {
-            Customer updatedCustomer = new Customer(
-                    customerId,
-                    fullName,
-                    existingCustomer.get().getPassport(), // Passport cannot be changed
-                    existingCustomer.get().getDriverLicense(), // Driver license cannot be changed
-                    phone,
-                    address
-            );
-            customerRepository.save(updatedCustomer);
-            return true;
+        if (!existingCustomer.isPresent()) {
+            return false;
         }
-        return false;
+        Customer updatedCustomer = new Customer(
+                customerId,
+                fullName,
+                existingCustomer.get().getPassport(), // Passport cannot be changed
+                existingCustomer.get().getDriverLicense(), // Driver license cannot be changed
+                phone,
+                address,
+                expectedVersion
+        );
+        return customerRepository.update(updatedCustomer).isPresent();
     }
 
     public boolean canCustomerRent(Integer customerId) {
@@ -0,0 +1,49 @@
+package carrental.domain.service;
+
+import carrental.domain.repository.OptimisticLockException;
+
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+// Read-modify-write over a version-checked update. edit builds the replacement from the entity as read, keeping
+// its version, and write stores it only if that version is still current. When another writer got there first
+// the entity is read again and the edit re-applied, so a concurrent change is built upon rather than overwritten.
+final class OptimisticRetry {
+    static final int DEFAULT_ATTEMPTS = 5;
+
+    private OptimisticRetry() {
+    }
+
+    static <E> Optional<E> update(Supplier<Optional<E>> read, UnaryOperator<E> edit,
+                                  Function<E, Optional<E>> write) {
+        return update(DEFAULT_ATTEMPTS, read, edit, write);
+    }
+
+    // Empty if the entity does not exist; an edit that returns its argument unchanged writes nothing
+    static <E> Optional<E> update(int attempts, Supplier<Optional<E>> read, UnaryOperator<E> edit,
+                                  Function<E, Optional<E>> write) {
+        if (attempts <= 0) {
+            throw new IllegalArgumentException("Attempts must be positive");
+        }
+        OptimisticLockException conflict = null;
+        for (int attempt = 0; attempt < attempts; attempt++) {
+            Optional<E> current = read.get();
+            if (!current.isPresent()) {
+                return current;
+            }
+            E replacement = edit.apply(current.get());
+            if (replacement == current.get()) {
+                return current;
+            }
+            try {
+                return write.apply(replacement);
+            } catch (OptimisticLockException e) {
+                conflict = e;
+                Thread.yield();
+            }
+        }
+        throw conflict;
+    }
+}
@@ -0,0 +1,28 @@
+package carrental.domain.service;
+
+// One booking in a createRentals batch; the fields mirror the arguments of RentalService.createRental
+public class RentalRequest {
+    private final Integer customerId;
+    private final Integer carId;
+    private final String dateStart;
+    private final String dateEnd;
+    private final Integer costFact;
+    private final String depositStatus;
+
+    public RentalRequest(Integer customerId, Integer carId, String dateStart,
+                         String dateEnd, Integer costFact, String depositStatus) {
+        this.customerId = customerId;
+        this.carId = carId;
+        this.dateStart = dateStart;
+        this.dateEnd = dateEnd;
+        this.costFact = costFact;
+        this.depositStatus = depositStatus;
+    }
+
+    public Integer getCustomerId() { return customerId; }
+    public Integer getCarId() { return carId; }
+    public String getDateStart() { return dateStart; }
+    public String getDateEnd() { return dateEnd; }
+    public Integer getCostFact() { return costFact; }
+    public String getDepositStatus() { return depositStatus; }
+}
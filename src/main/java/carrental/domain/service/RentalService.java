@@ -2,33 +2,121 @@ package carrental.domain.service;
 
 import carrental.domain.model.Rental;
 import carrental.domain.model.Car;
+import carrental.domain.model.CarStatus;
 import carrental.domain.model.Customer;
+import carrental.domain.model.Dates;
+import carrental.domain.model.DepositStatus;
+import carrental.domain.model.RentalStatus;
+import carrental.domain.repository.RentalQuery;
 import carrental.domain.repository.RentalRepository;
+import carrental.domain.repository.UnitOfWork;
 import carrental.domain.repository.CarRepository;
 import carrental.domain.repository.CustomerRepository;
 
-import java.time.LocalDate;
-import java.time.format.DateTimeParseException;
 //import java.time.temporal.ChronoUnit;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 public class RentalService {
+    public static final int MAX_ACTIVE_RENTALS = 2;
+
     private final RentalRepository rentalRepository;
     private final CarRepository carRepository;
     private final CustomerRepository customerRepository;
+    private final CarReservationEngine reservationEngine;
+    private final ActiveRentalCounters activeRentals;
 
     public RentalService(RentalRepository rentalRepository,
                          CarRepository carRepository,
                          CustomerRepository customerRepository) {
+        this(rentalRepository, carRepository, customerRepository,
+                new CarReservationEngine(carRepository, rentalRepository),
+                new ActiveRentalCounters(rentalRepository, MAX_ACTIVE_RENTALS));
+    }
+
+    public RentalService(RentalRepository rentalRepository,
+                         CarRepository carRepository,
+                         CustomerRepository customerRepository,
+                         CarReservationEngine reservationEngine,
+                         ActiveRentalCounters activeRentals) {
         this.rentalRepository = rentalRepository;
         this.carRepository = carRepository;
         this.customerRepository = customerRepository;
+        this.reservationEngine = reservationEngine;
+        this.activeRentals = activeRentals;
     }
 
     public Rental createRental(Integer customerId, Integer carId, String dateStart,
                                String dateEnd, Integer costFact, String depositeStatus) {
+        Rental rental = prepareRental(customerId, carId, dateStart, dateEnd, costFact, depositeStatus);
+        checkParties(rental, customerRepository.findById(customerId).orElse(null),
+                carRepository.findById(carId).orElse(null));
+        return book(rental);
+    }
+
+    // Validation runs in parallel and customers and cars are fetched with one multi-get each; the bookings are
+    // then applied in request order. Each booking is a nested unit of work and any RuntimeException it throws
+    // is recorded as that item's failure, so one bad row never aborts the batch. The batch as a whole is one
+    // outer unit, so durability is waited for once; if that wait fails, every booking is rolled back and the
+    // failure is thrown instead of the results.
+    public List<BatchResult<Rental>> createRentals(List<RentalRequest> requests) {
+        if (requests == null) {
+            throw new IllegalArgumentException("Rental requests are required");
+        }
+
+        int count = requests.size();
+        Rental[] prepared = new Rental[count];
+        String[] errors = new String[count];
+        IntStream.range(0, count).parallel().forEach(i -> {
+            RentalRequest request = requests.get(i);
+            try {
+                if (request == null) {
+                    throw new IllegalArgumentException("Rental request is required");
+                }
+                prepared[i] = prepareRental(request.getCustomerId(), request.getCarId(), request.getDateStart(),
+                        request.getDateEnd(), request.getCostFact(), request.getDepositStatus());
+            } catch (RuntimeException e) {
+                errors[i] = e.getMessage();
+            }
+        });
+
+        Set<Integer> customerIds = new HashSet<>();
+        Set<Integer> carIds = new HashSet<>();
+        for (Rental rental : prepared) {
+            if (rental != null) {
+                customerIds.add(rental.getCustomerId());
+                carIds.add(rental.getCarId());
+            }
+        }
+        Map<Integer, Customer> customers = customerRepository.findAllById(customerIds);
+        Map<Integer, Car> cars = carRepository.findAllById(carIds);
+
+        return UnitOfWork.run(work -> {
+            List<BatchResult<Rental>> results = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Rental rental = prepared[i];
+                if (rental == null) {
+                    results.add(BatchResult.failure(errors[i]));
+                    continue;
+                }
+                try {
+                    checkParties(rental, customers.get(rental.getCustomerId()), cars.get(rental.getCarId()));
+                    results.add(BatchResult.success(book(rental)));
+                } catch (RuntimeException e) {
+                    results.add(BatchResult.failure(e.getMessage()));
+                }
+            }
+            return results;
+        });
+    }
+
+    private Rental prepareRental(Integer customerId, Integer carId, String dateStart,
+                                 String dateEnd, Integer costFact, String depositeStatus) {
 
         if (customerId == null || customerId <= 0) {
             throw new IllegalArgumentException("Valid customer ID is required");
@@ -38,7 +126,9 @@ public class RentalService {
             throw new IllegalArgumentException("Valid car ID is required");
         }
 
-        if (!isValidDate(dateStart) || !isValidDate(dateEnd)) {
+        long startDay = Dates.parseEpochDay(dateStart);
+        long endDay = Dates.parseEpochDay(dateEnd);
+        if (startDay == Dates.INVALID || endDay == Dates.INVALID) {
             throw new IllegalArgumentException("Invalid date format. Use YYYY-MM-DD");
         }
 
@@ -50,46 +140,51 @@ public class RentalService {
             throw new IllegalArgumentException("Deposit status is required");
         }
 
-        try {
-            LocalDate start = LocalDate.parse(dateStart);
-            LocalDate end = LocalDate.parse(dateEnd);
-            if (end.isBefore(start) || end.isEqual(start)) {
-                throw new IllegalArgumentException("End date must be after start date");
-            }
-        } catch (DateTimeParseException e) {
-            throw new IllegalArgumentException("Invalid date format. Use YYYY-MM-DD");
-        }
+        DepositStatus deposit = DepositStatus.parse(depositeStatus);
 
-        Optional<Customer> customer = customerRepository.findById(customerId);
-        if (!customer.isPresent()) {
-            throw new IllegalArgumentException("Customer not found with ID: " + customerId);
+        if (endDay <= startDay) {
+            throw new IllegalArgumentException("End date must be after start date");
         }
 
-        Optional<Car> car = carRepository.findById(carId);
-        if (!car.isPresent()) {
-            throw new IllegalArgumentException("Car not found with ID: " + carId);
-        }
+        return new Rental(null, customerId, carId, dateStart, dateEnd, startDay, endDay,
+                costFact, deposit, RentalStatus.ACTIVE);
+    }
 
-        if (!"AVAILABLE".equals(car.get().getStatus())) {
-            throw new IllegalStateException("Car is not available for rental. Current status: " + car.get().getStatus());
+    private void checkParties(Rental rental, Customer customer, Car car) {
+        if (customer == null) {
+            throw new IllegalArgumentException("Customer not found with ID: " + rental.getCustomerId());
         }
 
-        if (rentalRepository.isCarCurrentlyRented(carId)) {
-            throw new IllegalStateException("Car is currently rented");
+        if (car == null) {
+            throw new IllegalArgumentException("Car not found with ID: " + rental.getCarId());
         }
 
-        if (!canCustomerRent(customerId)) {
-            throw new IllegalStateException("Customer is not eligible to rent a car");
+        if (car.getStatus() != CarStatus.AVAILABLE) {
+            throw new IllegalStateException("Car is not available for rental. Current status: " + car.getStatus());
         }
+    }
 
-        Rental rental = new Rental(null, customerId, carId, dateStart, dateEnd,
-                costFact, depositeStatus, "ACTIVE");
-
-        Rental savedRental = rentalRepository.save(rental);
-
-        carRepository.updateStatus(carId, "RENTED");
-
-        return savedRental;
+    private Rental book(Rental rental) {
+        Integer customerId = rental.getCustomerId();
+        Integer carId = rental.getCarId();
+        return UnitOfWork.run(work -> {
+            if (!activeRentals.tryAcquire(customerId)) {
+                throw new IllegalStateException("Customer is not eligible to rent a car");
+            }
+            // Once saved, the rental itself is counted, so the reservation is released either way
+            try {
+                // The status check above is only a fast path; the claim decides which concurrent booking gets the car
+                if (!reservationEngine.tryReserve(carId)) {
+                    throw new IllegalStateException("Car is not available for rental");
+                }
+                work.onRollback(() -> reservationEngine.release(carId));
+
+                return work.step(() -> rentalRepository.save(rental),
+                        saved -> rentalRepository.delete(saved.getRentalId()));
+            } finally {
+                activeRentals.release(customerId);
+            }
+        });
     }
 
     public Optional<Rental> getRental(Integer id) {
@@ -103,6 +198,13 @@ public class RentalService {
         return rentalRepository.findAll();
     }
 
+    public List<Rental> getRentalsPage(Integer afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return rentalRepository.findPage(afterId, limit);
+    }
+
     public List<Rental> getCustomerRentals(Integer customerId) {
         if (customerId == null || customerId <= 0) {
             throw new IllegalArgumentException("Invalid customer ID");
@@ -117,21 +219,58 @@ public class RentalService {
         return rentalRepository.findByCarId(carId);
     }
 
+    public List<Rental> searchRentals(RentalQuery query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Query is required");
+        }
+        return rentalRepository.query(query);
+    }
+
     public boolean completeRental(Integer rentalId) {
         if (rentalId == null || rentalId <= 0) {
             throw new IllegalArgumentException("Invalid rental ID");
         }
 
         Optional<Rental> rental = rentalRepository.findById(rentalId);
-        if (rental.isPresent()) {
-            boolean rentalUpdated = rentalRepository.updateStatus(rentalId, "COMPLETED");
+        return rental.isPresent() && complete(rental.get());
+    }
 
-            if (rentalUpdated) {
-                carRepository.updateStatus(rental.get().getCarId(), "AVAILABLE");
-                return true;
+    public List<BatchResult<Integer>> completeRentals(List<Integer> rentalIds) {
+        if (rentalIds == null) {
+            throw new IllegalArgumentException("Rental IDs are required");
+        }
+
+        Map<Integer, Rental> rentals = rentalRepository.findAllById(rentalIds);
+        List<BatchResult<Integer>> results = new ArrayList<>(rentalIds.size());
+        for (Integer rentalId : rentalIds) {
+            Rental rental = rentals.get(rentalId);
+            if (rental == null) {
+                results.add(BatchResult.failure("Rental not found with ID: " + rentalId));
+            } else if (complete(rental)) {
+                results.add(BatchResult.success(rentalId));
+            } else {
+                results.add(BatchResult.failure("Rental is not active: " + rentalId));
             }
         }
-        return false;
+        return results;
+    }
+
+    private boolean complete(Rental rental) {
+        Integer rentalId = rental.getRentalId();
+        Integer carId = rental.getCarId();
+
+        return UnitOfWork.run(work -> {
+            // Only the caller that moves the rental out of ACTIVE releases the car and the customer's slot
+            if (!rentalRepository.compareAndSetStatus(rentalId, RentalStatus.ACTIVE, RentalStatus.COMPLETED)) {
+                return false;
+            }
+            work.onRollback(() -> rentalRepository.compareAndSetStatus(rentalId, RentalStatus.COMPLETED, RentalStatus.ACTIVE));
+
+            if (carRepository.compareAndSetStatus(carId, CarStatus.RENTED, CarStatus.AVAILABLE)) {
+                work.onRollback(() -> carRepository.compareAndSetStatus(carId, CarStatus.AVAILABLE, CarStatus.RENTED));
+            }
+            return true;
+        });
     }
 
     public List<Rental> getActiveRentals() {
@@ -151,26 +290,23 @@ public class RentalService {
             throw new IllegalArgumentException("Deposit status is required");
         }
 
-        List<String> validStatuses = Arrays.asList("PAID", "REFUNDED", "PENDING");
-        if (!validStatuses.contains(depositStatus.toUpperCase())) {
-            throw new IllegalArgumentException("Invalid deposit status. Must be: PAID, REFUNDED, or PENDING");
-        }
-
-        return rentalRepository.updateDepositStatus(rentalId, depositStatus);
-    }
-
-    private boolean canCustomerRent(Integer customerId) {
-        Optional<Customer> customer = customerRepository.findById(customerId);
-        if (!customer.isPresent()) {
-            return false;
-        }
-
-        List<Rental> activeRentals = rentalRepository.findByCustomerIdAndStatus(customerId, "ACTIVE");
-        if (activeRentals.size() >= 2) {
-            return false;
-        }
-
-        return true;
+        DepositStatus deposit = DepositStatus.parse(depositStatus);
+        return OptimisticRetry.update(
+                () -> rentalRepository.findById(rentalId),
+                rental -> rental.getDepositeStatus() == deposit ? rental : new Rental(
+                        rental.getRentalId(),
+                        rental.getCustomerId(),
+                        rental.getCarId(),
+                        rental.getDateStart(),
+                        rental.getDateEnd(),
+                        rental.getStartEpochDay(),
+                        rental.getEndEpochDay(),
+                        rental.getCostFact(),
+                        deposit,
+                        rental.getStatus(),
+                        rental.getVersion()),
+                rentalRepository::update
+        ).isPresent();
     }
 
 //    public int calculateRentalDuration(Integer rentalId) {
@@ -205,11 +341,7 @@ public class RentalService {
             return false;
         }
 
-        return "AVAILABLE".equals(car.get().getStatus()) &&
+        return car.get().getStatus() == CarStatus.AVAILABLE &&
                 !rentalRepository.isCarCurrentlyRented(carId);
     }
-
-    private boolean isValidDate(String date) {
-        return date != null && date.matches("\\d{4}-\\d{2}-\\d{2}");
-    }
 }
\ No newline at end of file
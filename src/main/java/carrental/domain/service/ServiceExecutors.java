@@ -0,0 +1,74 @@
+package carrental.domain.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Executors for the Async* service facades
+public final class ServiceExecutors {
+    private ServiceExecutors() {
+    }
+
+    // A virtual thread per task when the JDK has them (21+), otherwise a bounded pool sized to the machine.
+    // Looked up reflectively because the code is still compiled for Java 8.
+    public static ExecutorService newDefault() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Runtime.getRuntime().availableProcessors() * 2;
+            return newBounded(threads, threads * 64);
+        }
+    }
+
+    // Fixed pool of daemon threads with a bounded queue; when the queue is full the submitting thread runs the
+    // task itself, which slows producers down instead of rejecting their work. Unlike CallerRunsPolicy, a pool
+    // that has been shut down rejects the task rather than dropping it, so its future still completes.
+    public static ExecutorService newBounded(int threads, int queueCapacity) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> {
+                    Thread thread = new Thread(task, "service-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (task, pool) -> {
+                    if (pool.isShutdown()) {
+                        throw new RejectedExecutionException("Service executor has been shut down");
+                    }
+                    task.run();
+                });
+    }
+
+    // Like CompletableFuture.supplyAsync, but a rejected submission (e.g. after shutdown) also becomes an
+    // exceptional completion instead of being thrown at the caller
+    static <T> CompletableFuture<T> supply(Executor executor, Supplier<T> action) {
+        try {
+            return CompletableFuture.supplyAsync(action, executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    static Executor requireExecutor(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor is required");
+        }
+        return executor;
+    }
+}
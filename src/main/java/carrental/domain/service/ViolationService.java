@@ -1,13 +1,15 @@
 package carrental.domain.service;
 
+import carrental.domain.model.Dates;
 import carrental.domain.model.Violation;
+import carrental.domain.model.ViolationStatus;
 import carrental.domain.model.Rental;
+import carrental.domain.repository.ViolationQuery;
 import carrental.domain.repository.ViolationRepository;
 import carrental.domain.repository.RentalRepository;
 
-import java.time.LocalDate;
-import java.time.format.DateTimeParseException;
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,7 +29,8 @@ public class ViolationService {
             throw new IllegalArgumentException("Valid rental ID is required");
         }
 
-        if (!isValidDateTime(dateTime)) {
+        long epochMinute = Dates.parseEpochMinute(dateTime);
+        if (epochMinute == Dates.INVALID) {
             throw new IllegalArgumentException("Invalid date-time format. Use YYYY-MM-DD HH:MM");
         }
 
@@ -48,12 +51,8 @@ public class ViolationService {
             throw new IllegalArgumentException("Rental not found with ID: " + rentalId);
         }
 
-        List<String> validStatuses = Arrays.asList("PENDING", "PAID", "RESOLVED");
-        if (!validStatuses.contains(status.toUpperCase())) {
-            throw new IllegalArgumentException("Invalid status. Must be: PENDING, PAID, or RESOLVED");
-        }
-
-        Violation violation = new Violation(null, rentalId, dateTime, description, fineAmount, status);
+        Violation violation = new Violation(null, rentalId, dateTime, epochMinute, description, fineAmount,
+                ViolationStatus.parse(status));
         return violationRepository.save(violation);
     }
 
@@ -68,6 +67,13 @@ public class ViolationService {
         return violationRepository.findAll();
     }
 
+    public List<Violation> getViolationsPage(Integer afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return violationRepository.findPage(afterId, limit);
+    }
+
     public List<Violation> getViolationsByRentalId(Integer rentalId) {
         if (rentalId == null || rentalId <= 0) {
             throw new IllegalArgumentException("Invalid rental ID");
@@ -83,6 +89,13 @@ public class ViolationService {
         return violationRepository.findPaidViolations();
     }
 
+    public List<Violation> searchViolations(ViolationQuery query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Query is required");
+        }
+        return violationRepository.query(query);
+    }
+
     public boolean resolveViolation(Integer violationId) {
         if (violationId == null || violationId <= 0) {
             throw new IllegalArgumentException("Invalid violation ID");
@@ -90,7 +103,7 @@ public class ViolationService {
 
         Optional<Violation> violation = violationRepository.findById(violationId);
         if (violation.isPresent()) {
-            return violationRepository.updateStatus(violationId, "PAID");
+            return violationRepository.updateStatus(violationId, ViolationStatus.PAID);
         }
         return false;
     }
@@ -145,8 +158,7 @@ public class ViolationService {
             throw new IllegalArgumentException("Invalid rental ID");
         }
 
-        List<Violation> pendingViolations = violationRepository.findByRentalIdAndStatus(rentalId, "PENDING");
-        return !pendingViolations.isEmpty();
+        return violationRepository.hasPendingViolations(rentalId);
     }
 
     public List<Violation> getViolationsWithFineGreaterThan(Integer minAmount) {
@@ -165,18 +177,14 @@ public class ViolationService {
             throw new IllegalArgumentException("Valid end date is required");
         }
 
-        if (!isValidDate(startDate) || !isValidDate(endDate)) {
+        long startDay = Dates.parseEpochDay(startDate);
+        long endDay = Dates.parseEpochDay(endDate);
+        if (startDay == Dates.INVALID || endDay == Dates.INVALID) {
             throw new IllegalArgumentException("Invalid date format. Use YYYY-MM-DD");
         }
 
-        try {
-            LocalDate start = LocalDate.parse(startDate);
-            LocalDate end = LocalDate.parse(endDate);
-            if (end.isBefore(start)) {
-                throw new IllegalArgumentException("End date must be after start date");
-            }
-        } catch (DateTimeParseException e) {
-            throw new IllegalArgumentException("Invalid date format. Use YYYY-MM-DD");
+        if (endDay < startDay) {
+            throw new IllegalArgumentException("End date must be after start date");
         }
 
         return violationRepository.findByDateRange(startDate, endDate);
@@ -187,24 +195,22 @@ public class ViolationService {
             throw new IllegalArgumentException("Invalid rental ID");
         }
 
-        List<Violation> pendingViolations = violationRepository.findByRentalIdAndStatus(rentalId, "PENDING");
-        boolean allResolved = true;
+        violationRepository.settlePending(Collections.singleton(rentalId), ViolationStatus.PAID);
+        return true;
+    }
 
-        for (Violation violation : pendingViolations) {
-            boolean resolved = violationRepository.updateStatus(violation.getViolationId(), "PAID");
-            if (!resolved) {
-                allResolved = false;
-            }
+    // End-of-day settlement: pays every pending violation of the given rentals in one repository batch
+    public int resolveAllViolationsForRentals(Collection<Integer> rentalIds) {
+        if (rentalIds == null) {
+            throw new IllegalArgumentException("Rental IDs are required");
         }
 
-        return allResolved;
-    }
-
-    private boolean isValidDateTime(String dateTime) {
-        return dateTime != null && dateTime.matches("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}");
-    }
+        for (Integer rentalId : rentalIds) {
+            if (rentalId == null || rentalId <= 0) {
+                throw new IllegalArgumentException("Invalid rental ID: " + rentalId);
+            }
+        }
 
-    private boolean isValidDate(String date) {
-        return date != null && date.matches("\\d{4}-\\d{2}-\\d{2}");
+        return violationRepository.settlePending(rentalIds, ViolationStatus.PAID);
     }
 }
\ No newline at end of file
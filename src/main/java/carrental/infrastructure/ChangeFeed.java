@@ -0,0 +1,162 @@
+package carrental.infrastructure;
+
+import carrental.domain.repository.ChangeEvent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * In-process stream of repository changes, kept in a fixed-size ring of the most recent events.
+ *
+ * Publishing is lock-free: a writer claims the next sequence number and stores the event in its slot, so
+ * repositories can publish from inside their per-id locks. Writers never wait for readers. Each subscriber
+ * keeps its own read position instead. One that falls more than a ring's length behind is overrun: poll()
+ * throws until the subscriber calls resynchronize(), re-reads the state it follows from the repositories and
+ * carries on from there, so a slow reader never skips events without knowing it.
+ */
+public class ChangeFeed implements ChangeListener {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<ChangeEvent> slots;
+    private final AtomicLong nextSequence = new AtomicLong(1);
+
+    public ChangeFeed() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    // Capacity is rounded up to a power of two
+    public ChangeFeed(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+        }
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.slots = new AtomicReferenceArray<>(this.capacity);
+    }
+
+    @Override
+    public void changed(ChangeEvent.Source source, ChangeEvent.Type type, Integer entityId, Object entity) {
+        publish(source, type, entityId, entity);
+    }
+
+    public long publish(ChangeEvent.Source source, ChangeEvent.Type type, Integer entityId, Object entity) {
+        long sequence = nextSequence.getAndIncrement();
+        ChangeEvent event = new ChangeEvent(sequence, source, type, entityId, entity);
+        int slot = slot(sequence);
+        // A writer stalled for a whole lap must not put its event back over a newer one; it is dropped instead,
+        // and readers count it as lost when they find the newer sequence in its place
+        ChangeEvent current;
+        do {
+            current = slots.get(slot);
+            if (current != null && current.getSequence() > sequence) {
+                break;
+            }
+        } while (!slots.compareAndSet(slot, current, event));
+        return sequence;
+    }
+
+    // Sequence of the most recently claimed event, 0 if nothing has been published
+    public long lastSequence() {
+        return nextSequence.get() - 1;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // A subscription that sees every event published from now on
+    public Subscription subscribe() {
+        return new Subscription(nextSequence.get());
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence & mask);
+    }
+
+    /**
+     * A reader's position in the feed. Any number of subscriptions can read concurrently, but each one
+     * belongs to a single consuming thread.
+     */
+    public final class Subscription {
+        private long position;
+        private long lostEvents;
+        private boolean overrun;
+
+        private Subscription(long position) {
+            this.position = position;
+        }
+
+        // The next event in sequence order, or null if it has not been published yet. Throws
+        // IllegalStateException once the writers have lapped this subscription, until it is resynchronized
+        public ChangeEvent poll() {
+            if (!overrun) {
+                ChangeEvent event = slots.get(slot(position));
+                if (event == null || event.getSequence() < position) {
+                    return null;
+                }
+                if (event.getSequence() == position) {
+                    position++;
+                    return event;
+                }
+                // The slot was reused by a later lap, so the event at this position is gone
+                overrun = true;
+            }
+            throw new IllegalStateException("Change feed subscription fell more than " + capacity
+                    + " events behind at sequence " + position + "; resynchronize and re-read the repositories");
+        }
+
+        /**
+         * Moves this subscription to the next event to be published and returns its sequence; everything in
+         * between is counted as lost. Afterwards the subscriber must re-read from the repositories whatever it
+         * derives from the feed: events from the returned sequence on may repeat changes that re-read already
+         * saw, so applying them has to be idempotent, for example by comparing entity versions.
+         */
+        public long resynchronize() {
+            long next = nextSequence.get();
+            lostEvents += Math.max(0, next - position);
+            position = next;
+            overrun = false;
+            return next;
+        }
+
+        // True once the writers have lapped this subscription, until it is resynchronized
+        public boolean isOverrun() {
+            if (!overrun) {
+                ChangeEvent event = slots.get(slot(position));
+                overrun = event != null && event.getSequence() > position;
+            }
+            return overrun;
+        }
+
+        public int drain(int maxEvents, Consumer<? super ChangeEvent> consumer) {
+            if (maxEvents <= 0) {
+                throw new IllegalArgumentException("Event count must be positive");
+            }
+            int drained = 0;
+            ChangeEvent event;
+            while (drained < maxEvents && (event = poll()) != null) {
+                consumer.accept(event);
+                drained++;
+            }
+            return drained;
+        }
+
+        // Sequence of the next event this subscription will return
+        public long position() {
+            return position;
+        }
+
+        // Events published but not yet consumed; close to the capacity means the reader is about to be overrun
+        public long lag() {
+            return Math.max(0, nextSequence.get() - position);
+        }
+
+        // Total events skipped by resynchronize()
+        public long lostEvents() {
+            return lostEvents;
+        }
+    }
+}
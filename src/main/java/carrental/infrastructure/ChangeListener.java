@@ -0,0 +1,46 @@
+package carrental.infrastructure;
+
+import carrental.domain.repository.ChangeEvent;
+
+/**
+ * Receives every write a repository applies. beforeWrite() runs on the writing thread before the repository
+ * takes any lock, and throwing from it rejects the write with nothing changed. changed() runs while the
+ * repository still holds the entity's lock, so it must be quick and must not call back into a repository;
+ * afterWrite() runs on the same thread once the lock is released, before the write returns to its caller. A
+ * write that throws does not call afterWrite(), so the caller sees its own exception.
+ */
+public interface ChangeListener {
+    default void beforeWrite() {
+    }
+
+    void changed(ChangeEvent.Source source, ChangeEvent.Type type, Integer entityId, Object entity);
+
+    default void afterWrite() {
+    }
+
+    static ChangeListener of(ChangeListener... listeners) {
+        ChangeListener[] targets = listeners.clone();
+        return new ChangeListener() {
+            @Override
+            public void beforeWrite() {
+                for (ChangeListener target : targets) {
+                    target.beforeWrite();
+                }
+            }
+
+            @Override
+            public void changed(ChangeEvent.Source source, ChangeEvent.Type type, Integer entityId, Object entity) {
+                for (ChangeListener target : targets) {
+                    target.changed(source, type, entityId, entity);
+                }
+            }
+
+            @Override
+            public void afterWrite() {
+                for (ChangeListener target : targets) {
+                    target.afterWrite();
+                }
+            }
+        };
+    }
+}
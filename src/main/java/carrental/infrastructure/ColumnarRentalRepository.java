@@ -0,0 +1,803 @@
+package carrental.infrastructure;
+
+import carrental.domain.model.Dates;
+import carrental.domain.model.DepositStatus;
+import carrental.domain.model.Rental;
+import carrental.domain.model.RentalStatus;
+import carrental.domain.repository.ChangeEvent;
+import carrental.domain.repository.OptimisticLockException;
+import carrental.domain.repository.QueryPlan;
+import carrental.domain.repository.RentalQuery;
+import carrental.domain.repository.RentalRepository;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Rental store laid out as primitive parallel arrays, one column per field, for analytics scans.
+ * Row r holds rental id r + 1, so ids from the counter append at the end of every column.
+ * Rental objects are only materialized by the RentalRepository finders; the scan and aggregate
+ * methods read the columns directly.
+ *
+ * Because rows are addressed by id, every column is as long as the highest id stored. Ids above maxId are
+ * rejected, so a single stray id cannot make the store allocate columns for everything below it.
+ */
+public class ColumnarRentalRepository implements RentalRepository {
+    private static final int INITIAL_CAPACITY = 1024;
+    // 30 bytes of columns per row, so the largest store is about 2 GB
+    public static final int DEFAULT_MAX_ID = 1 << 26;
+    private static final int STREAM_PAGE_SIZE = 1024;
+    private static final byte EMPTY = 0;
+    private static final byte ACTIVE = (byte) (RentalStatus.ACTIVE.ordinal() + 1);
+    private static final RentalStatus[] RENTAL_STATUSES = RentalStatus.values();
+    private static final DepositStatus[] DEPOSIT_STATUSES = DepositStatus.values();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicInteger idCounter = new AtomicInteger(1);
+    private final int maxId;
+
+    private int[] customerIds;
+    private int[] carIds;
+    private int[] startDays;
+    private int[] endDays;
+    private int[] costs;
+    // Enum ordinal + 1, so EMPTY marks a free row
+    private byte[] statuses;
+    private byte[] deposits;
+    private long[] versions;
+    private int rowCount;
+    private int size;
+    // ACTIVE rows per car and per customer, changed under the write lock and read without it, so the
+    // availability checks made on every booking never scan the columns
+    private final Map<Integer, Integer> activeByCar = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> activeByCustomer = new ConcurrentHashMap<>();
+    private final ChangeListener changes;
+
+    public ColumnarRentalRepository() {
+        this(INITIAL_CAPACITY, null);
+    }
+
+    public ColumnarRentalRepository(int initialCapacity) {
+        this(initialCapacity, null);
+    }
+
+    // Rows are only materialized into events when a listener is attached
+    public ColumnarRentalRepository(int initialCapacity, ChangeListener changes) {
+        this(initialCapacity, DEFAULT_MAX_ID, changes);
+    }
+
+    public ColumnarRentalRepository(int initialCapacity, int maxId, ChangeListener changes) {
+        if (maxId <= 0) {
+            throw new IllegalArgumentException("Maximum rental ID must be positive");
+        }
+        this.maxId = maxId;
+        this.changes = changes;
+        allocate(Math.min(Math.max(initialCapacity, 16), maxId));
+    }
+
+    public interface RowVisitor {
+        void visit(int rentalId, int customerId, int carId, int startEpochDay, int endEpochDay,
+                   int cost, RentalStatus status);
+    }
+
+    @Override
+    public Rental save(Rental rental) {
+        validate(rental);
+        beforeWrite();
+        Rental saved;
+        lock.writeLock().lock();
+        try {
+            int id = rental.getRentalId() != null ? rental.getRentalId() : idCounter.getAndIncrement();
+            if (id <= 0) {
+                throw new IllegalArgumentException("Invalid rental ID: " + id);
+            }
+            checkMaxId(id);
+            if (rental.getRentalId() != null) {
+                idCounter.accumulateAndGet(id + 1, Math::max);
+            }
+            int row = id - 1;
+            ensureCapacity(row + 1);
+            if (statuses[row] == EMPTY) {
+                size++;
+                versions[row] = 0;
+            }
+            countActive(row, -1);
+            write(row, rental);
+            countActive(row, 1);
+            rowCount = Math.max(rowCount, row + 1);
+            publish(ChangeEvent.Type.SAVED, row);
+            saved = materialize(row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        afterWrite();
+        return saved;
+    }
+
+    // Column scans need no secondary indexes, so the bulk load path is a plain save
+    @Override
+    public Rental saveUnindexed(Rental rental) {
+        return save(rental);
+    }
+
+    @Override
+    public void rebuildIndexes() {
+    }
+
+    @Override
+    public void restore(Rental rental) {
+        validate(rental);
+        if (rental.getRentalId() == null || rental.getRentalId() <= 0) {
+            throw new IllegalArgumentException("Invalid rental ID: " + rental.getRentalId());
+        }
+        checkMaxId(rental.getRentalId());
+        lock.writeLock().lock();
+        try {
+            int row = rental.getRentalId() - 1;
+            idCounter.accumulateAndGet(row + 2, Math::max);
+            ensureCapacity(row + 1);
+            if (statuses[row] == EMPTY) {
+                size++;
+            }
+            countActive(row, -1);
+            write(row, rental);
+            countActive(row, 1);
+            versions[row] = rental.getVersion();
+            rowCount = Math.max(rowCount, row + 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Rental> update(Rental rental) {
+        if (rental.getRentalId() == null) {
+            throw new IllegalArgumentException("Rental ID is required for an update");
+        }
+        validate(rental);
+        beforeWrite();
+        Rental updated = null;
+        lock.writeLock().lock();
+        try {
+            int row = rowOf(rental.getRentalId());
+            if (row >= 0) {
+                if (versions[row] != rental.getVersion()) {
+                    throw new OptimisticLockException("Rental", rental.getRentalId(), rental.getVersion(),
+                            versions[row]);
+                }
+                countActive(row, -1);
+                write(row, rental);
+                countActive(row, 1);
+                publish(ChangeEvent.Type.UPDATED, row);
+                updated = materialize(row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        afterWrite();
+        return Optional.ofNullable(updated);
+    }
+
+    @Override
+    public Optional<Rental> findById(Integer id) {
+        lock.readLock().lock();
+        try {
+            int row = rowOf(id);
+            return row >= 0 ? Optional.of(materialize(row)) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<Integer, Rental> findAllById(Collection<Integer> ids) {
+        Map<Integer, Rental> result = new HashMap<>(Math.max(16, ids.size() * 2));
+        lock.readLock().lock();
+        try {
+            for (Integer id : ids) {
+                int row = rowOf(id);
+                if (row >= 0) {
+                    result.put(id, materialize(row));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Rental> findAll() {
+        return collect(row -> true);
+    }
+
+    @Override
+    public List<Rental> findPage(Integer afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive");
+        }
+        lock.readLock().lock();
+        try {
+            List<Rental> result = new ArrayList<>(Math.min(limit, STREAM_PAGE_SIZE));
+            // Row r holds id r + 1, so the first row after afterId is row afterId
+            for (int row = afterId != null ? Math.max(afterId, 0) : 0; row < rowCount && result.size() < limit; row++) {
+                if (statuses[row] != EMPTY) {
+                    result.add(materialize(row));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Pulls one page at a time, so the read lock is never held while the stream's consumer runs
+    @Override
+    public Stream<Rental> streamAll() {
+        Iterator<Rental> rentals = new Iterator<Rental>() {
+            private List<Rental> page = findPage(null, STREAM_PAGE_SIZE);
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                if (index < page.size()) {
+                    return true;
+                }
+                if (page.size() < STREAM_PAGE_SIZE) {
+                    return false;
+                }
+                page = findPage(page.get(page.size() - 1).getRentalId(), STREAM_PAGE_SIZE);
+                index = 0;
+                return !page.isEmpty();
+            }
+
+            @Override
+            public Rental next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.get(index++);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(rentals,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT), false);
+    }
+
+    @Override
+    public void delete(Integer id) {
+        beforeWrite();
+        lock.writeLock().lock();
+        try {
+            int row = rowOf(id);
+            if (row >= 0) {
+                publish(ChangeEvent.Type.DELETED, row);
+                countActive(row, -1);
+                statuses[row] = EMPTY;
+                size--;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        afterWrite();
+    }
+
+    @Override
+    public List<Rental> findByCustomerId(Integer customerId) {
+        if (customerId == null) {
+            return new ArrayList<>();
+        }
+        int value = customerId;
+        return collect(row -> customerIds[row] == value);
+    }
+
+    @Override
+    public List<Rental> findByCarId(Integer carId) {
+        if (carId == null) {
+            return new ArrayList<>();
+        }
+        int value = carId;
+        return collect(row -> carIds[row] == value);
+    }
+
+    @Override
+    public List<Rental> findActiveRentals() {
+        return findByStatus(RentalStatus.ACTIVE);
+    }
+
+    @Override
+    public List<Rental> findCompletedRentals() {
+        return findByStatus(RentalStatus.COMPLETED);
+    }
+
+    @Override
+    public List<Rental> findByStatus(RentalStatus status) {
+        if (status == null) {
+            return new ArrayList<>();
+        }
+        byte code = code(status);
+        return collect(row -> statuses[row] == code);
+    }
+
+    @Override
+    public boolean isCarCurrentlyRented(Integer carId) {
+        return carId != null && activeByCar.containsKey(carId);
+    }
+
+    @Override
+    public boolean hasActiveRentals(Integer customerId) {
+        return customerId != null && activeByCustomer.containsKey(customerId);
+    }
+
+    @Override
+    public int countActiveRentals(Integer customerId) {
+        return customerId != null ? activeByCustomer.getOrDefault(customerId, 0) : 0;
+    }
+
+    @Override
+    public boolean updateStatus(Integer rentalId, RentalStatus status) {
+        if (status == null) {
+            throw new IllegalArgumentException("Rental status is required");
+        }
+        beforeWrite();
+        boolean updated = false;
+        lock.writeLock().lock();
+        try {
+            int row = rowOf(rentalId);
+            if (row >= 0) {
+                countActive(row, -1);
+                statuses[row] = code(status);
+                countActive(row, 1);
+                versions[row]++;
+                publish(ChangeEvent.Type.STATUS_CHANGED, row);
+                updated = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        afterWrite();
+        return updated;
+    }
+
+    @Override
+    public boolean updateDepositStatus(Integer rentalId, DepositStatus depositStatus) {
+        if (depositStatus == null) {
+            throw new IllegalArgumentException("Deposit status is required");
+        }
+        beforeWrite();
+        boolean updated = false;
+        lock.writeLock().lock();
+        try {
+            int row = rowOf(rentalId);
+            if (row >= 0) {
+                deposits[row] = code(depositStatus);
+                versions[row]++;
+                publish(ChangeEvent.Type.UPDATED, row);
+                updated = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        afterWrite();
+        return updated;
+    }
+
+    @Override
+    public boolean compareAndSetStatus(Integer rentalId, RentalStatus expected, RentalStatus status) {
+        if (status == null) {
+            throw new IllegalArgumentException("Rental status is required");
+        }
+        byte expectedCode = expected != null ? code(expected) : EMPTY;
+        beforeWrite();
+        boolean updated = false;
+        lock.writeLock().lock();
+        try {
+            int row = rowOf(rentalId);
+            if (row >= 0 && statuses[row] == expectedCode) {
+                countActive(row, -1);
+                statuses[row] = code(status);
+                countActive(row, 1);
+                versions[row]++;
+                publish(ChangeEvent.Type.STATUS_CHANGED, row);
+                updated = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        afterWrite();
+        return updated;
+    }
+
+    @Override
+    public boolean compareAndSetDepositStatus(Integer rentalId, DepositStatus expected, DepositStatus depositStatus) {
+        if (depositStatus == null) {
+            throw new IllegalArgumentException("Deposit status is required");
+        }
+        byte expectedCode = expected != null ? code(expected) : EMPTY;
+        beforeWrite();
+        boolean updated = false;
+        lock.writeLock().lock();
+        try {
+            int row = rowOf(rentalId);
+            if (row >= 0 && deposits[row] == expectedCode) {
+                deposits[row] = code(depositStatus);
+                versions[row]++;
+                publish(ChangeEvent.Type.UPDATED, row);
+                updated = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        afterWrite();
+        return updated;
+    }
+
+    @Override
+    public List<Rental> findByDateRange(String startDate, String endDate) {
+        long rangeStart = Dates.parseEpochDay(startDate);
+        long rangeEnd = Dates.parseEpochDay(endDate);
+        if (rangeStart == Dates.INVALID || rangeEnd == Dates.INVALID) {
+            return Collections.emptyList();
+        }
+        return collect(row -> startDays[row] >= rangeStart && startDays[row] <= rangeEnd);
+    }
+
+    @Override
+    public List<Rental> findByCustomerIdAndStatus(Integer customerId, RentalStatus status) {
+        if (customerId == null || status == null) {
+            return new ArrayList<>();
+        }
+        int value = customerId;
+        byte code = code(status);
+        return collect(row -> customerIds[row] == value && statuses[row] == code);
+    }
+
+    @Override
+    public List<Rental> query(RentalQuery query) {
+        Integer customerId = query.getCustomerId();
+        Integer carId = query.getCarId();
+        byte status = query.getStatus() != null ? code(query.getStatus()) : EMPTY;
+        byte deposit = query.getDepositStatus() != null ? code(query.getDepositStatus()) : EMPTY;
+        Integer minCost = query.getMinCost();
+        List<Rental> result = collect(row -> (customerId == null || customerIds[row] == customerId)
+                && (carId == null || carIds[row] == carId)
+                && (status == EMPTY || statuses[row] == status)
+                && (deposit == EMPTY || deposits[row] == deposit)
+                && (!query.hasDateRange() || (startDays[row] >= query.getStartFromDay() && startDays[row] <= query.getStartToDay()))
+                && (minCost == null || costs[row] >= minCost));
+        result.sort(query.comparator());
+        return result.size() > query.getLimit() ? new ArrayList<>(result.subList(0, query.getLimit())) : result;
+    }
+
+    // No indexes here: every query is one pass over the columns with all filters applied per row
+    @Override
+    public QueryPlan explain(RentalQuery query) {
+        return new QueryPlan("column scan", size(), query.filters(), query.order(), query.getLimit());
+    }
+
+    /**
+     * Visits every stored rental in id order without materializing Rental objects.
+     */
+    public void scan(RowVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            for (int row = 0; row < rowCount; row++) {
+                byte status = statuses[row];
+                if (status != EMPTY) {
+                    visitor.visit(row + 1, customerIds[row], carIds[row], startDays[row], endDays[row],
+                            costs[row], RENTAL_STATUSES[status - 1]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getTotalCost() {
+        lock.readLock().lock();
+        try {
+            long total = 0;
+            for (int row = 0; row < rowCount; row++) {
+                if (statuses[row] != EMPTY) {
+                    total += costs[row];
+                }
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<Integer, Long> getCostByCar() {
+        lock.readLock().lock();
+        try {
+            return sumBy(carIds);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<Integer, Long> getCostByCustomer() {
+        lock.readLock().lock();
+        try {
+            return sumBy(customerIds);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Grouped by the month the rental started
+    public Map<YearMonth, Long> getCostByMonth() {
+        lock.readLock().lock();
+        try {
+            Map<YearMonth, Long> result = new TreeMap<>();
+            if (size == 0) {
+                return result;
+            }
+            int minDay = Integer.MAX_VALUE;
+            int maxDay = Integer.MIN_VALUE;
+            for (int row = 0; row < rowCount; row++) {
+                if (statuses[row] != EMPTY) {
+                    minDay = Math.min(minDay, startDays[row]);
+                    maxDay = Math.max(maxDay, startDays[row]);
+                }
+            }
+            if ((long) maxDay - minDay > 2L * size + 1024) {
+                sumByMonth(result);
+                return result;
+            }
+            // Sum per day in one dense pass, then fold days into months
+            long[] byDay = new long[maxDay - minDay + 1];
+            for (int row = 0; row < rowCount; row++) {
+                if (statuses[row] != EMPTY) {
+                    byDay[startDays[row] - minDay] += costs[row];
+                }
+            }
+            for (int i = 0; i < byDay.length; i++) {
+                if (byDay[i] != 0) {
+                    result.merge(YearMonth.from(LocalDate.ofEpochDay(minDay + i)), byDay[i], Long::sum);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // For start dates too far apart for a per-day array. The day range of the last month seen is kept, so the
+    // calendar is only consulted when a row falls outside it
+    private void sumByMonth(Map<YearMonth, Long> result) {
+        Map<YearMonth, long[]> sums = new HashMap<>();
+        long[] sum = null;
+        int monthStart = 1;
+        int monthEnd = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (statuses[row] == EMPTY) {
+                continue;
+            }
+            int day = startDays[row];
+            if (day < monthStart || day > monthEnd) {
+                LocalDate date = LocalDate.ofEpochDay(day);
+                monthStart = day - date.getDayOfMonth() + 1;
+                monthEnd = monthStart + date.lengthOfMonth() - 1;
+                sum = sums.computeIfAbsent(YearMonth.from(date), month -> new long[1]);
+            }
+            sum[0] += costs[row];
+        }
+        sums.forEach((month, total) -> result.put(month, total[0]));
+    }
+
+    // Only a sizing hint, so a request beyond maxId grows to maxId rather than failing
+    @Override
+    public void ensureCapacity(int rows) {
+        lock.writeLock().lock();
+        try {
+            if (rows > customerIds.length && customerIds.length < maxId) {
+                grow(Math.min(rows, maxId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            allocate(INITIAL_CAPACITY);
+            activeByCar.clear();
+            activeByCustomer.clear();
+            rowCount = 0;
+            size = 0;
+            idCounter.set(1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Dense arrays indexed by key are fastest, but one outlying id would size them to that id, so sparse keys
+    // are summed in a hash map instead
+    private Map<Integer, Long> sumBy(int[] keys) {
+        int minKey = Integer.MAX_VALUE;
+        int maxKey = Integer.MIN_VALUE;
+        for (int row = 0; row < rowCount; row++) {
+            if (statuses[row] != EMPTY) {
+                minKey = Math.min(minKey, keys[row]);
+                maxKey = Math.max(maxKey, keys[row]);
+            }
+        }
+        Map<Integer, Long> result = new HashMap<>();
+        if (minKey > maxKey) {
+            return result;
+        }
+        if (minKey < 0 || maxKey > 2L * size + 1024) {
+            for (int row = 0; row < rowCount; row++) {
+                if (statuses[row] != EMPTY) {
+                    result.merge(keys[row], (long) costs[row], Long::sum);
+                }
+            }
+            return result;
+        }
+        long[] sums = new long[maxKey + 1];
+        boolean[] seen = new boolean[maxKey + 1];
+        for (int row = 0; row < rowCount; row++) {
+            if (statuses[row] != EMPTY) {
+                int key = keys[row];
+                sums[key] += costs[row];
+                seen[key] = true;
+            }
+        }
+        for (int key = 0; key <= maxKey; key++) {
+            if (seen[key]) {
+                result.put(key, sums[key]);
+            }
+        }
+        return result;
+    }
+
+    // Called with the write lock held, with -1 before a row changes and +1 after
+    private void countActive(int row, int delta) {
+        if (statuses[row] == ACTIVE) {
+            adjust(activeByCar, carIds[row], delta);
+            adjust(activeByCustomer, customerIds[row], delta);
+        }
+    }
+
+    private static void adjust(Map<Integer, Integer> counts, int key, int delta) {
+        counts.compute(key, (k, count) -> {
+            int next = (count != null ? count : 0) + delta;
+            return next > 0 ? next : null;
+        });
+    }
+
+    private interface RowFilter {
+        boolean test(int row);
+    }
+
+    private List<Rental> collect(RowFilter filter) {
+        lock.readLock().lock();
+        try {
+            List<Rental> result = new ArrayList<>();
+            for (int row = 0; row < rowCount; row++) {
+                if (statuses[row] != EMPTY && filter.test(row)) {
+                    result.add(materialize(row));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Rental materialize(int row) {
+        return new Rental(
+                row + 1,
+                customerIds[row],
+                carIds[row],
+                LocalDate.ofEpochDay(startDays[row]).toString(),
+                LocalDate.ofEpochDay(endDays[row]).toString(),
+                startDays[row],
+                endDays[row],
+                costs[row],
+                DEPOSIT_STATUSES[deposits[row] - 1],
+                RENTAL_STATUSES[statuses[row] - 1],
+                versions[row]
+        );
+    }
+
+    // Called with the write lock held
+    private void publish(ChangeEvent.Type type, int row) {
+        if (changes != null) {
+            changes.changed(ChangeEvent.Source.RENTAL, type, row + 1, materialize(row));
+        }
+    }
+
+    private void beforeWrite() {
+        if (changes != null) {
+            changes.beforeWrite();
+        }
+    }
+
+    // Called after the write lock is released once the write has succeeded, whether or not it changed anything
+    private void afterWrite() {
+        if (changes != null) {
+            changes.afterWrite();
+        }
+    }
+
+    private void checkMaxId(int id) {
+        if (id > maxId) {
+            throw new IllegalArgumentException("Rental ID " + id + " exceeds the limit of this store: " + maxId);
+        }
+    }
+
+    private static void validate(Rental rental) {
+        if (rental.getCustomerId() == null || rental.getCarId() == null || rental.getCostFact() == null
+                || rental.getStatus() == null || rental.getDepositeStatus() == null) {
+            throw new IllegalArgumentException("Columnar rental store requires every rental field to be set");
+        }
+        if (rental.getStartEpochDay() == Dates.INVALID || rental.getEndEpochDay() == Dates.INVALID) {
+            throw new IllegalArgumentException("Columnar rental store requires valid start and end dates");
+        }
+    }
+
+    private void write(int row, Rental rental) {
+        customerIds[row] = rental.getCustomerId();
+        carIds[row] = rental.getCarId();
+        startDays[row] = (int) rental.getStartEpochDay();
+        endDays[row] = (int) rental.getEndEpochDay();
+        costs[row] = rental.getCostFact();
+        statuses[row] = code(rental.getStatus());
+        deposits[row] = code(rental.getDepositeStatus());
+        versions[row]++;
+    }
+
+    private int rowOf(Integer id) {
+        if (id == null || id <= 0 || id > rowCount) {
+            return -1;
+        }
+        int row = id - 1;
+        return statuses[row] != EMPTY ? row : -1;
+    }
+
+    private static byte code(Enum<?> value) {
+        return (byte) (value.ordinal() + 1);
+    }
+
+    private void allocate(int capacity) {
+        customerIds = new int[capacity];
+        carIds = new int[capacity];
+        startDays = new int[capacity];
+        endDays = new int[capacity];
+        costs = new int[capacity];
+        statuses = new byte[capacity];
+        deposits = new byte[capacity];
+        versions = new long[capacity];
+    }
+
+    // Grows by half again, so a long run of appends costs amortized O(1) per row
+    private void grow(int minCapacity) {
+        int capacity = (int) Math.min(maxId, Math.max(minCapacity, customerIds.length * 3L / 2));
+        customerIds = Arrays.copyOf(customerIds, capacity);
+        carIds = Arrays.copyOf(carIds, capacity);
+        startDays = Arrays.copyOf(startDays, capacity);
+        endDays = Arrays.copyOf(endDays, capacity);
+        costs = Arrays.copyOf(costs, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        deposits = Arrays.copyOf(deposits, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+    }
+}
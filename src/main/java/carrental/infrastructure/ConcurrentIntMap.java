@@ -0,0 +1,282 @@
+package carrental.infrastructure;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Concurrent map from a non-negative int id to a value, stored as a directory of fixed-size pages
+ * indexed directly by id. Repository ids come from a sequential counter, so pages fill densely and an
+ * entry costs one array slot instead of a hash node plus a boxed Integer key.
+ *
+ * Reads are lock-free volatile loads. Writes for one id are serialized by a lock stripe, which gives
+ * compute() the same per-key atomicity as ConcurrentHashMap without a global lock. Iteration is in
+ * ascending id order and weakly consistent.
+ */
+class ConcurrentIntMap<V> {
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int STRIPES = 64;
+
+    interface IntBiFunction<V> {
+        V apply(int key, V value);
+    }
+
+    private final Object[] stripes = new Object[STRIPES];
+    private final Object directoryLock = new Object();
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile AtomicReferenceArray<V>[] pages;
+
+    ConcurrentIntMap() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+        pages = newDirectory(16);
+    }
+
+    V get(int key) {
+        AtomicReferenceArray<V> page = page(key);
+        return page != null ? page.get(key & PAGE_MASK) : null;
+    }
+
+    boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    V put(int key, V value) {
+        return compute(key, (k, current) -> value);
+    }
+
+    V compute(int key, IntBiFunction<V> function) {
+        checkKey(key);
+        synchronized (stripes[key & (STRIPES - 1)]) {
+            AtomicReferenceArray<V> page = pageForWrite(key);
+            int slot = key & PAGE_MASK;
+            V current = page.get(slot);
+            V next = function.apply(key, current);
+            store(page, slot, current, next);
+            return next;
+        }
+    }
+
+    V computeIfPresent(int key, IntBiFunction<V> function) {
+        if (get(key) == null) {
+            return null;
+        }
+        synchronized (stripes[key & (STRIPES - 1)]) {
+            AtomicReferenceArray<V> page = page(key);
+            int slot = key & PAGE_MASK;
+            V current = page.get(slot);
+            if (current == null) {
+                return null;
+            }
+            V next = function.apply(key, current);
+            store(page, slot, current, next);
+            return next;
+        }
+    }
+
+    /**
+     * Runs action while holding the lock of every stripe, so no single-key write can interleave with it;
+     * compute() and friends may be called from inside, since the locks are reentrant. Stripes are taken in
+     * ascending order, so two callers cannot deadlock.
+     */
+    void lockingAll(Runnable action) {
+        int[] order = new int[STRIPES];
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            order[stripe] = stripe;
+        }
+        lockFrom(order, 0, action);
+    }
+
+    private void lockFrom(int[] order, int next, Runnable action) {
+        if (next == order.length) {
+            action.run();
+            return;
+        }
+        synchronized (stripes[order[next]]) {
+            lockFrom(order, next + 1, action);
+        }
+    }
+
+    V remove(int key) {
+        if (get(key) == null) {
+            return null;
+        }
+        synchronized (stripes[key & (STRIPES - 1)]) {
+            AtomicReferenceArray<V> page = page(key);
+            int slot = key & PAGE_MASK;
+            V current = page.get(slot);
+            store(page, slot, current, null);
+            return current;
+        }
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    /**
+     * Pre-allocates pages for ids up to maxKey, e.g. before a bulk load.
+     */
+    void ensureCapacity(int maxKey) {
+        checkKey(maxKey);
+        for (int key = 0; key <= maxKey && key >= 0; key += PAGE_SIZE) {
+            pageForWrite(key);
+        }
+    }
+
+    void clear() {
+        synchronized (directoryLock) {
+            pages = newDirectory(16);
+            size.set(0);
+        }
+    }
+
+    Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return valuesFrom(0);
+            }
+
+            @Override
+            public int size() {
+                return size.get();
+            }
+        };
+    }
+
+    /**
+     * Values with id >= fromKey, in ascending id order.
+     */
+    Iterator<V> valuesFrom(int fromKey) {
+        return new ValueIterator(Math.max(fromKey, 0));
+    }
+
+    /**
+     * Up to limit values with id greater than afterKey (all ids when afterKey is null), in ascending id order.
+     */
+    List<V> page(Integer afterKey, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive");
+        }
+        List<V> result = new ArrayList<>(Math.min(limit, 1024));
+        if (afterKey != null && afterKey == Integer.MAX_VALUE) {
+            return result;
+        }
+        Iterator<V> values = valuesFrom(afterKey != null ? afterKey + 1 : 0);
+        while (result.size() < limit && values.hasNext()) {
+            result.add(values.next());
+        }
+        return result;
+    }
+
+    private void store(AtomicReferenceArray<V> page, int slot, V current, V next) {
+        if (next == current) {
+            return;
+        }
+        page.set(slot, next);
+        if (current == null) {
+            size.incrementAndGet();
+        } else if (next == null) {
+            size.decrementAndGet();
+        }
+    }
+
+    private AtomicReferenceArray<V> page(int key) {
+        if (key < 0) {
+            return null;
+        }
+        AtomicReferenceArray<V>[] directory = pages;
+        int index = key >>> PAGE_BITS;
+        return index < directory.length ? directory[index] : null;
+    }
+
+    private AtomicReferenceArray<V> pageForWrite(int key) {
+        AtomicReferenceArray<V> page = page(key);
+        if (page != null) {
+            return page;
+        }
+        synchronized (directoryLock) {
+            AtomicReferenceArray<V>[] directory = pages;
+            int index = key >>> PAGE_BITS;
+            if (index >= directory.length) {
+                AtomicReferenceArray<V>[] grown = newDirectory(Math.max(index + 1, directory.length * 2));
+                System.arraycopy(directory, 0, grown, 0, directory.length);
+                directory = grown;
+            }
+            if (directory[index] == null) {
+                directory[index] = new AtomicReferenceArray<>(PAGE_SIZE);
+            }
+            // Volatile write publishes both a grown directory and the new page
+            pages = directory;
+            return directory[index];
+        }
+    }
+
+    private static void checkKey(int key) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Negative id: " + key);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <V> AtomicReferenceArray<V>[] newDirectory(int length) {
+        return (AtomicReferenceArray<V>[]) new AtomicReferenceArray[length];
+    }
+
+    private final class ValueIterator implements Iterator<V> {
+        private final AtomicReferenceArray<V>[] directory = pages;
+        private long key;
+        private V next;
+
+        ValueIterator(int fromKey) {
+            key = fromKey;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public V next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            V value = next;
+            advance();
+            return value;
+        }
+
+        private void advance() {
+            next = null;
+            long limit = (long) directory.length << PAGE_BITS;
+            while (key < limit) {
+                AtomicReferenceArray<V> page = directory[(int) (key >>> PAGE_BITS)];
+                if (page == null) {
+                    key = ((key >>> PAGE_BITS) + 1) << PAGE_BITS;
+                    continue;
+                }
+                V value = page.get((int) (key & PAGE_MASK));
+                key++;
+                if (value != null) {
+                    next = value;
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,493 @@
+package carrental.infrastructure;
+
+import carrental.domain.model.Car;
+import carrental.domain.model.CarStatus;
+import carrental.domain.model.Customer;
+import carrental.domain.model.Dates;
+import carrental.domain.model.DepositStatus;
+import carrental.domain.model.Rental;
+import carrental.domain.model.RentalStatus;
+import carrental.domain.model.Violation;
+import carrental.domain.model.ViolationStatus;
+import carrental.domain.repository.CarRepository;
+import carrental.domain.repository.CustomerRepository;
+import carrental.domain.repository.RentalRepository;
+import carrental.domain.repository.UnitOfWork;
+import carrental.domain.repository.ViolationRepository;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+
+// Streams CSV files into the repositories. One reader thread cuts the file into chunks of lines; a worker pool
+// parses, validates and stores each chunk through saveUnindexed, and the secondary indexes are built in one
+// pass once the whole file is in. Columns follow the entity constructors with the id first, and a blank id lets
+// the repository assign one:
+//   cars:       id,vin,licensePlate,brand,model,status,hourlyRate
+//   customers:  id,fullName,passport,driverLicense,phone,address
+//   rentals:    id,customerId,carId,dateStart,dateEnd,costFact,depositStatus,status
+//   violations: id,rentalId,dateTime,description,fineAmount,status
+// Rows that fail go to the reject file as "line<TAB>reason<TAB>original row". References between files
+// (a rental's customer, a violation's rental) are not checked, so load them in any order. The target
+// repository should not be serving other callers during a load.
+public class CsvBulkLoader {
+    private static final int READ_BUFFER_CHARS = 1 << 20;
+    private static final int CHUNK_LINES = 8192;
+
+    private final CarRepository carRepository;
+    private final CustomerRepository customerRepository;
+    private final RentalRepository rentalRepository;
+    private final ViolationRepository violationRepository;
+    private final int parallelism;
+
+    public CsvBulkLoader(CarRepository carRepository, CustomerRepository customerRepository,
+                         RentalRepository rentalRepository, ViolationRepository violationRepository) {
+        this(carRepository, customerRepository, rentalRepository, violationRepository,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    public CsvBulkLoader(CarRepository carRepository, CustomerRepository customerRepository,
+                         RentalRepository rentalRepository, ViolationRepository violationRepository,
+                         int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.carRepository = carRepository;
+        this.customerRepository = customerRepository;
+        this.rentalRepository = rentalRepository;
+        this.violationRepository = violationRepository;
+        this.parallelism = parallelism;
+    }
+
+    public static final class Report {
+        private final long loaded;
+        private final long rejected;
+        private final long elapsedMillis;
+
+        Report(long loaded, long rejected, long elapsedMillis) {
+            this.loaded = loaded;
+            this.rejected = rejected;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public long getLoaded() { return loaded; }
+        public long getRejected() { return rejected; }
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        @Override
+        public String toString() {
+            return loaded + " loaded, " + rejected + " rejected in " + elapsedMillis + " ms";
+        }
+    }
+
+    public Report loadCars(Path csv, Path rejects) throws IOException {
+        // Same rule as CarServise.addCar; the VIN index is not maintained during the load, so rows of this
+        // file are checked against each other here
+        Set<String> vins = ConcurrentHashMap.newKeySet();
+        return load(csv, rejects, 7, CsvBulkLoader::parseCar, car -> {
+            if (carRepository.existsByVin(car.getVin()) || !vins.add(car.getVin().toUpperCase(Locale.ROOT))) {
+                throw new IllegalArgumentException("Car with VIN " + car.getVin() + " already exists");
+            }
+            carRepository.saveUnindexed(car);
+        }, car -> idOrZero(car.getCarId()), carRepository::ensureCapacity, carRepository::rebuildIndexes);
+    }
+
+    public Report loadCustomers(Path csv, Path rejects) throws IOException {
+        return load(csv, rejects, 6, CsvBulkLoader::parseCustomer, customerRepository::saveUnindexed,
+                customer -> idOrZero(customer.getCustomerId()), customerRepository::ensureCapacity,
+                customerRepository::rebuildIndexes);
+    }
+
+    public Report loadRentals(Path csv, Path rejects) throws IOException {
+        return load(csv, rejects, 8, CsvBulkLoader::parseRental, rentalRepository::saveUnindexed,
+                rental -> idOrZero(rental.getRentalId()), rentalRepository::ensureCapacity,
+                rentalRepository::rebuildIndexes);
+    }
+
+    public Report loadViolations(Path csv, Path rejects) throws IOException {
+        return load(csv, rejects, 6, CsvBulkLoader::parseViolation, violationRepository::saveUnindexed,
+                violation -> idOrZero(violation.getViolationId()), violationRepository::ensureCapacity,
+                violationRepository::rebuildIndexes);
+    }
+
+    private interface RowParser<T> {
+        // Throws IllegalArgumentException for a row that must be rejected
+        T parse(String[] fields);
+    }
+
+    private <T> Report load(Path csv, Path rejects, int columns, RowParser<T> parser, Consumer<T> save,
+                            ToIntFunction<T> idOf, IntConsumer presize, Runnable buildIndexes) throws IOException {
+        Report report;
+        try {
+            report = stream(csv, rejects, columns, parser, save, idOf, presize);
+        } catch (IOException | RuntimeException e) {
+            // Whatever did get stored is still made queryable, without hiding why the load stopped
+            try {
+                buildIndexes.run();
+            } catch (RuntimeException indexFailure) {
+                e.addSuppressed(indexFailure);
+            }
+            throw e;
+        }
+        buildIndexes.run();
+        return report;
+    }
+
+    private <T> Report stream(Path csv, Path rejects, int columns, RowParser<T> parser, Consumer<T> save,
+                              ToIntFunction<T> idOf, IntConsumer presize) throws IOException {
+        long started = System.nanoTime();
+        AtomicLong loaded = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+        // Caps the chunks held in memory, so a file of any size streams through a fixed footprint
+        Semaphore inFlight = new Semaphore(parallelism * 2);
+        List<Future<?>> chunks = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ);
+             BufferedReader reader = new BufferedReader(
+                     Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), READ_BUFFER_CHARS),
+                     READ_BUFFER_CHARS);
+             RejectWriter rejectWriter = new RejectWriter(rejects)) {
+
+            List<String> lines = new ArrayList<>(CHUNK_LINES);
+            long firstLine = 1;
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1 && isHeader(line)) {
+                    firstLine = 2;
+                    continue;
+                }
+                lines.add(line);
+                if (lines.size() == CHUNK_LINES) {
+                    chunks.add(submit(workers, inFlight, lines, firstLine, columns, parser, save, idOf, presize,
+                            rejectWriter, loaded, rejected));
+                    lines = new ArrayList<>(CHUNK_LINES);
+                    firstLine = lineNumber + 1;
+                }
+            }
+            if (!lines.isEmpty()) {
+                chunks.add(submit(workers, inFlight, lines, firstLine, columns, parser, save, idOf, presize,
+                        rejectWriter, loaded, rejected));
+            }
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bulk load of " + csv + " was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IllegalStateException("Bulk load of " + csv + " failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+            awaitTermination(workers);
+        }
+        return new Report(loaded.get(), rejected.get(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private static void awaitTermination(ExecutorService workers) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> Future<?> submit(ExecutorService workers, Semaphore inFlight, List<String> lines, long firstLine,
+                                 int columns, RowParser<T> parser, Consumer<T> save, ToIntFunction<T> idOf,
+                                 IntConsumer presize, RejectWriter rejects, AtomicLong loaded, AtomicLong rejected)
+            throws InterruptedException {
+        inFlight.acquire();
+        try {
+            return workers.submit(() -> {
+                try {
+                    loadChunk(lines, firstLine, columns, parser, save, idOf, presize, rejects, loaded, rejected);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    private static <T> void loadChunk(List<String> lines, long firstLine, int columns, RowParser<T> parser,
+                                      Consumer<T> save, ToIntFunction<T> idOf, IntConsumer presize,
+                                      RejectWriter rejects, AtomicLong loaded, AtomicLong rejected) {
+        List<T> rows = new ArrayList<>(lines.size());
+        int[] rowIndexes = new int[lines.size()];
+        int maxId = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                T row = parser.parse(split(line, columns));
+                rowIndexes[rows.size()] = i;
+                rows.add(row);
+                maxId = Math.max(maxId, idOf.applyAsInt(row));
+            } catch (IllegalArgumentException e) {
+                rejected.incrementAndGet();
+                rejects.write(firstLine + i, e.getMessage(), line);
+            }
+        }
+
+        // Grow storage once for the whole chunk rather than page by page as rows arrive. Only ids the file could
+        // fill densely so far are trusted for that; a stray huge id is stored on its own instead of reserving
+        // room for every id below it
+        int presizeTo = (int) Math.min(maxId, firstLine + lines.size() + CHUNK_LINES);
+        if (presizeTo > 0) {
+            presize.accept(presizeTo);
+        }
+        // One unit of work per chunk, so a write-ahead log waits for durability once per chunk instead of per row
+        UnitOfWork.run(work -> {
+            for (int i = 0; i < rows.size(); i++) {
+                try {
+                    save.accept(rows.get(i));
+                    loaded.incrementAndGet();
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    rejected.incrementAndGet();
+                    rejects.write(firstLine + rowIndexes[i], e.getMessage(), lines.get(rowIndexes[i]));
+                }
+            }
+            return null;
+        });
+    }
+
+    private static boolean isHeader(String line) {
+        return line.regionMatches(true, line.startsWith("\"") ? 1 : 0, "id", 0, 2);
+    }
+
+    // Splits one CSV line; quoted fields may contain commas and doubled quotes, but not line breaks
+    static String[] split(String line, int columns) {
+        String[] fields = new String[columns];
+        int count = 0;
+        int pos = 0;
+        int length = line.length();
+        while (true) {
+            if (count == columns) {
+                throw new IllegalArgumentException("Expected " + columns + " columns but found more");
+            }
+            if (pos < length && line.charAt(pos) == '"') {
+                StringBuilder value = new StringBuilder();
+                pos++;
+                while (true) {
+                    if (pos >= length) {
+                        throw new IllegalArgumentException("Unterminated quoted field");
+                    }
+                    char c = line.charAt(pos++);
+                    if (c != '"') {
+                        value.append(c);
+                    } else if (pos < length && line.charAt(pos) == '"') {
+                        value.append('"');
+                        pos++;
+                    } else {
+                        break;
+                    }
+                }
+                fields[count++] = value.toString();
+                if (pos == length) {
+                    break;
+                }
+                if (line.charAt(pos) != ',') {
+                    throw new IllegalArgumentException("Unexpected text after quoted field");
+                }
+                pos++;
+            } else {
+                int comma = line.indexOf(',', pos);
+                int end = comma < 0 ? length : comma;
+                fields[count++] = line.substring(pos, end).trim();
+                if (comma < 0) {
+                    break;
+                }
+                pos = comma + 1;
+            }
+        }
+        if (count != columns) {
+            throw new IllegalArgumentException("Expected " + columns + " columns but found " + count);
+        }
+        return fields;
+    }
+
+    private static Car parseCar(String[] fields) {
+        return new Car(
+                optionalId(fields[0]),
+                required(fields[1], "VIN"),
+                required(fields[2], "License plate"),
+                required(fields[3], "Brand"),
+                required(fields[4], "Model"),
+                CarStatus.parse(fields[5]),
+                positiveInt(fields[6], "Hourly rate")
+        );
+    }
+
+    private static Customer parseCustomer(String[] fields) {
+        return new Customer(
+                optionalId(fields[0]),
+                required(fields[1], "Full name"),
+                positiveLong(fields[2], "Passport number"),
+                positiveLong(fields[3], "Driver license number"),
+                positiveLong(fields[4], "Phone number"),
+                required(fields[5], "Address")
+        );
+    }
+
+    private static Rental parseRental(String[] fields) {
+        long startDay = Dates.parseEpochDay(fields[3]);
+        long endDay = Dates.parseEpochDay(fields[4]);
+        if (startDay == Dates.INVALID || endDay == Dates.INVALID) {
+            throw new IllegalArgumentException("Invalid date format. Use YYYY-MM-DD");
+        }
+        if (endDay <= startDay) {
+            throw new IllegalArgumentException("End date must be after start date");
+        }
+        return new Rental(
+                optionalId(fields[0]),
+                positiveInt(fields[1], "Customer ID"),
+                positiveInt(fields[2], "Car ID"),
+                fields[3],
+                fields[4],
+                startDay,
+                endDay,
+                positiveInt(fields[5], "Cost"),
+                DepositStatus.parse(fields[6]),
+                RentalStatus.parse(fields[7])
+        );
+    }
+
+    private static Violation parseViolation(String[] fields) {
+        long epochMinute = Dates.parseEpochMinute(fields[2]);
+        if (epochMinute == Dates.INVALID) {
+            throw new IllegalArgumentException("Invalid date-time format. Use YYYY-MM-DD HH:MM");
+        }
+        int fineAmount = parseInt(fields[4], "Fine amount");
+        if (fineAmount < 0) {
+            throw new IllegalArgumentException("Fine amount must be non-negative");
+        }
+        return new Violation(
+                optionalId(fields[0]),
+                positiveInt(fields[1], "Rental ID"),
+                fields[2],
+                epochMinute,
+                required(fields[3], "Violation description"),
+                fineAmount,
+                ViolationStatus.parse(fields[5])
+        );
+    }
+
+    private static Integer optionalId(String value) {
+        return value.isEmpty() ? null : positiveInt(value, "ID");
+    }
+
+    private static String required(String value, String field) {
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        return value;
+    }
+
+    private static int positiveInt(String value, String field) {
+        int parsed = parseInt(value, field);
+        if (parsed <= 0) {
+            throw new IllegalArgumentException(field + " must be positive");
+        }
+        return parsed;
+    }
+
+    private static int parseInt(String value, String field) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not a number: " + value);
+        }
+    }
+
+    private static long positiveLong(String value, String field) {
+        long parsed;
+        try {
+            parsed = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not a number: " + value);
+        }
+        if (parsed <= 0) {
+            throw new IllegalArgumentException("Valid " + field.toLowerCase() + " is required");
+        }
+        return parsed;
+    }
+
+    private static int idOrZero(Integer id) {
+        return id != null ? id : 0;
+    }
+
+    // Reject rows arrive from every worker; writes are serialized and the file only exists if something was rejected
+    private static final class RejectWriter implements Closeable {
+        private final Path path;
+        private BufferedWriter writer;
+
+        RejectWriter(Path path) throws IOException {
+            this.path = path;
+            if (path != null) {
+                Files.deleteIfExists(path);
+            }
+        }
+
+        synchronized void write(long lineNumber, String reason, String line) {
+            if (path == null) {
+                return;
+            }
+            try {
+                if (writer == null) {
+                    writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+                }
+                writer.write(lineNumber + "\t" + reason + "\t" + line);
+                writer.newLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+}
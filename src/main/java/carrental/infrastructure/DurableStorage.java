@@ -0,0 +1,136 @@
+package carrental.infrastructure;
+
+import carrental.domain.repository.CarRepository;
+import carrental.domain.repository.CustomerRepository;
+import carrental.domain.repository.RentalRepository;
+import carrental.domain.repository.ViolationRepository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The on-disk state of one data directory: a change log plus periodic snapshots that let startup skip most of
+ * it. Recovery loads the newest snapshot and replays only the log segments written since it was taken;
+ * snapshot() then deletes segments the next recovery no longer needs, which keeps the log from growing without
+ * bound.
+ *
+ * Startup target: 10 million rentals in a ColumnarRentalRepository restored from a snapshot in under 10 seconds
+ * on four cores, plus a log tail of one snapshot interval. The object-per-row repositories need about 600 bytes
+ * per rental, so they are sized for a few million.
+ */
+public class DurableStorage implements Closeable {
+    private final WriteAheadLog log;
+    private final SnapshotStore snapshots;
+    private final Object snapshotLock = new Object();
+    private CarRepository cars;
+    private CustomerRepository customers;
+    private RentalRepository rentals;
+    private ViolationRepository violations;
+    private long snapshotAt;
+    private ScheduledExecutorService scheduler;
+    private volatile Exception lastFailure;
+
+    private DurableStorage(WriteAheadLog log, SnapshotStore snapshots) {
+        this.log = log;
+        this.snapshots = snapshots;
+    }
+
+    public static DurableStorage open(Path directory) throws IOException {
+        return new DurableStorage(WriteAheadLog.open(directory), new SnapshotStore(directory));
+    }
+
+    // The listener to hand to the repositories before recover() is called
+    public WriteAheadLog log() {
+        return log;
+    }
+
+    /**
+     * Loads the newest snapshot, replays the log written after it and rebuilds all indexes. The repositories
+     * must be empty and not yet in use; they are the ones later snapshots are taken from. Returns the number
+     * of log records replayed.
+     */
+    public long recover(CarRepository cars, CustomerRepository customers,
+                        RentalRepository rentals, ViolationRepository violations) throws IOException {
+        synchronized (snapshotLock) {
+            long replayFrom = snapshots.load(cars, customers, rentals, violations);
+            long records = log.replay(replayFrom, cars, customers, rentals, violations);
+            this.cars = cars;
+            this.customers = customers;
+            this.rentals = rentals;
+            this.violations = violations;
+            // A long replayed tail is worth folding into a fresh snapshot even if nothing new is written
+            snapshotAt = records > 0 ? -1 : log.appendedRecords();
+            return records;
+        }
+    }
+
+    /**
+     * Writes a snapshot unless nothing has changed since the last one, then drops the log segments it makes
+     * redundant. Writes can continue meanwhile. Returns whether a snapshot was written.
+     */
+    public boolean snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            if (cars == null) {
+                throw new IllegalStateException("Nothing to snapshot before recover()");
+            }
+            long appended = log.appendedRecords();
+            if (appended == snapshotAt) {
+                return false;
+            }
+            // A write whose record went into the segment just closed may not have reached its repository yet
+            // when the snapshot reads it, so that segment is replayed as well
+            long replayFrom = log.roll() - 1;
+            snapshots.write(replayFrom, cars, customers, rentals, violations);
+            log.deleteSegmentsBefore(replayFrom);
+            snapshotAt = appended;
+            return true;
+        }
+    }
+
+    public void startPeriodicSnapshots(long interval, TimeUnit unit) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be positive");
+        }
+        synchronized (snapshotLock) {
+            if (scheduler != null) {
+                throw new IllegalStateException("Periodic snapshots are already running");
+            }
+            scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "snapshot-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+                lastFailure = null;
+            } catch (IOException | RuntimeException e) {
+                lastFailure = e;
+            }
+        }, interval, interval, unit);
+    }
+
+    // Why the most recent periodic snapshot failed, or null if it succeeded
+    public Exception lastFailure() {
+        return lastFailure;
+    }
+
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService running;
+        synchronized (snapshotLock) {
+            running = scheduler;
+        }
+        if (running != null) {
+            running.shutdownNow();
+        }
+        synchronized (snapshotLock) {
+            log.close();
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package carrental.infrastructure;
+
+import carrental.domain.model.Car;
+import carrental.domain.model.CarStatus;
+import carrental.domain.model.Customer;
+import carrental.domain.model.Dates;
+import carrental.domain.model.DepositStatus;
+import carrental.domain.model.Rental;
+import carrental.domain.model.RentalStatus;
+import carrental.domain.model.Violation;
+import carrental.domain.model.ViolationStatus;
+import carrental.domain.repository.ChangeEvent;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The binary form of stored entities, used by the change log, snapshots and anything else that moves entities
+ * out of the process.
+ *
+ * An entity is its id and version followed by its fields in constructor order. Integers are LEB128 varints,
+ * zigzag-encoded where they can be negative, and 0 stands for null wherever a value is nullable. Enums are one
+ * byte holding ordinal + 1. A date is stored as its epoch value and the text is only written out when it is
+ * not the canonical rendering of that value. Brands, models and violation descriptions go through a string
+ * dictionary: the first occurrence is written in full and later ones as an index into it. An Encoder and the
+ * Decoder that reads its output must therefore see the same records in the same order, starting from an empty
+ * dictionary; resetDictionary() starts a new, independently decodable run.
+ */
+public final class EntityCodec {
+    private static final int MAX_DICTIONARY_SIZE = 4096;
+    private static final int MAX_DICTIONARY_ENTRY = 64;
+    private static final int NULL = 0;
+    private static final int LITERAL = 1;
+
+    private static final CarStatus[] CAR_STATUSES = CarStatus.values();
+    private static final DepositStatus[] DEPOSIT_STATUSES = DepositStatus.values();
+    private static final RentalStatus[] RENTAL_STATUSES = RentalStatus.values();
+    private static final ViolationStatus[] VIOLATION_STATUSES = ViolationStatus.values();
+
+    private EntityCodec() {
+    }
+
+    // One entity in a buffer of its own, for callers that ship entities one at a time
+    public static ByteBuffer encode(ChangeEvent.Source source, Object entity) {
+        Encoder encoder = new Encoder();
+        encoder.write(source, entity);
+        return ByteBuffer.wrap(Arrays.copyOf(encoder.array(), encoder.size()));
+    }
+
+    public static Object decode(ChangeEvent.Source source, ByteBuffer in) {
+        return new Decoder(in).read(source);
+    }
+
+    static Integer idOf(ChangeEvent.Source source, Object entity) {
+        switch (source) {
+            case CAR:
+                return ((Car) entity).getCarId();
+            case CUSTOMER:
+                return ((Customer) entity).getCustomerId();
+            case RENTAL:
+                return ((Rental) entity).getRentalId();
+            case VIOLATION:
+                return ((Violation) entity).getViolationId();
+            default:
+                throw new IllegalArgumentException("Unknown change source: " + source);
+        }
+    }
+
+    static long versionOf(ChangeEvent.Source source, Object entity) {
+        switch (source) {
+            case CAR:
+                return ((Car) entity).getVersion();
+            case CUSTOMER:
+                return ((Customer) entity).getVersion();
+            case RENTAL:
+                return ((Rental) entity).getVersion();
+            case VIOLATION:
+                return ((Violation) entity).getVersion();
+            default:
+                throw new IllegalArgumentException("Unknown change source: " + source);
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Appends entities to a growable byte array. Not thread-safe.
+     */
+    public static final class Encoder {
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private byte[] buf = new byte[256];
+        private int count;
+
+        public Encoder write(ChangeEvent.Source source, Object entity) {
+            switch (source) {
+                case CAR:
+                    return writeCar((Car) entity);
+                case CUSTOMER:
+                    return writeCustomer((Customer) entity);
+                case RENTAL:
+                    return writeRental((Rental) entity);
+                case VIOLATION:
+                    return writeViolation((Violation) entity);
+                default:
+                    throw new IllegalArgumentException("Unknown change source: " + source);
+            }
+        }
+
+        public Encoder writeCar(Car car) {
+            writeNullable(car.getCarId());
+            writeVarLong(car.getVersion());
+            writeString(car.getVin());
+            writeString(car.getLicensePlate());
+            writeDictionaryString(car.getBrand());
+            writeDictionaryString(car.getModel());
+            writeEnum(car.getStatus());
+            writeNullable(car.getHourlyRate());
+            return this;
+        }
+
+        public Encoder writeCustomer(Customer customer) {
+            writeNullable(customer.getCustomerId());
+            writeVarLong(customer.getVersion());
+            writeString(customer.getFullName());
+            writeNullable(customer.getPassport());
+            writeNullable(customer.getDriverLicense());
+            writeNullable(customer.getPhone());
+            writeString(customer.getAddress());
+            return this;
+        }
+
+        public Encoder writeRental(Rental rental) {
+            writeNullable(rental.getRentalId());
+            writeVarLong(rental.getVersion());
+            writeNullable(rental.getCustomerId());
+            writeNullable(rental.getCarId());
+            writeDate(rental.getDateStart(), rental.getStartEpochDay(), false);
+            writeDate(rental.getDateEnd(), rental.getEndEpochDay(), false);
+            writeNullable(rental.getCostFact());
+            writeEnum(rental.getDepositeStatus());
+            writeEnum(rental.getStatus());
+            return this;
+        }
+
+        public Encoder writeViolation(Violation violation) {
+            writeNullable(violation.getViolationId());
+            writeVarLong(violation.getVersion());
+            writeNullable(violation.getRentalId());
+            writeDate(violation.getDateTime(), violation.getEpochMinute(), true);
+            writeDictionaryString(violation.getDescription());
+            writeNullable(violation.getFineAmount());
+            writeEnum(violation.getStatus());
+            return this;
+        }
+
+        public Encoder writeByte(int value) {
+            ensure(1);
+            buf[count++] = (byte) value;
+            return this;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        // The backing array; valid up to size() until the next write
+        public byte[] array() {
+            return buf;
+        }
+
+        public ByteBuffer buffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+
+        // Discards the encoded bytes but keeps the dictionary, so the next records can refer to it
+        public void reset() {
+            count = 0;
+        }
+
+        public void resetDictionary() {
+            dictionary.clear();
+        }
+
+        private void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buf[count++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[count++] = (byte) value;
+        }
+
+        private void writeNullable(Integer value) {
+            writeVarLong(value == null ? NULL : zigzag(value) + 1);
+        }
+
+        // Long.MIN_VALUE + 1 needs a 65th bit: it is written as the ten-byte varint of 2^64, which a reader tells
+        // apart from the one-byte null by its length
+        private void writeNullable(Long value) {
+            if (value != null && value == Long.MIN_VALUE) {
+                ensure(10);
+                for (int i = 0; i < 9; i++) {
+                    buf[count++] = (byte) 0x80;
+                }
+                buf[count++] = 0x02;
+                return;
+            }
+            writeVarLong(value == null ? NULL : zigzag(value) + 1);
+        }
+
+        private void writeEnum(Enum<?> value) {
+            writeByte(value == null ? NULL : value.ordinal() + 1);
+        }
+
+        // Length + 1, then UTF-8 bytes; returns the byte length, or -1 for null
+        private int writeString(String value) {
+            if (value == null) {
+                writeVarLong(NULL);
+                return -1;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, count, bytes.length);
+            count += bytes.length;
+            return bytes.length;
+        }
+
+        private void writeDictionaryString(String value) {
+            if (value == null) {
+                writeVarLong(NULL);
+                return;
+            }
+            Integer index = dictionary.get(value);
+            if (index != null) {
+                writeVarLong(index + 2);
+                return;
+            }
+            writeVarLong(LITERAL);
+            int length = writeString(value);
+            if (dictionary.size() < MAX_DICTIONARY_SIZE && length <= MAX_DICTIONARY_ENTRY) {
+                dictionary.put(value, dictionary.size());
+            }
+        }
+
+        // The epoch value + 1 (0 for invalid) shifted left once; the low bit says whether the text follows
+        private void writeDate(String text, long epoch, boolean withTime) {
+            boolean derived = epoch != Dates.INVALID && epoch == (withTime
+                    ? Dates.parseEpochMinute(text) : Dates.parseEpochDay(text));
+            long value = epoch == Dates.INVALID ? NULL : zigzag(epoch) + 1;
+            writeVarLong(value << 1 | (derived ? 0 : 1));
+            if (!derived) {
+                writeString(text);
+            }
+        }
+
+        private void ensure(int extra) {
+            if (count + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + extra));
+            }
+        }
+    }
+
+    /**
+     * Reads entities straight out of a buffer, heap or mapped, from its position onwards. Not thread-safe.
+     */
+    public static final class Decoder {
+        private final List<String> dictionary = new ArrayList<>();
+        private byte[] scratch = new byte[64];
+        private ByteBuffer in;
+
+        public Decoder() {
+        }
+
+        public Decoder(ByteBuffer in) {
+            this.in = in;
+        }
+
+        // Continues with another buffer, keeping the dictionary built so far
+        public Decoder from(ByteBuffer in) {
+            this.in = in;
+            return this;
+        }
+
+        public Object read(ChangeEvent.Source source) {
+            switch (source) {
+                case CAR:
+                    return readCar();
+                case CUSTOMER:
+                    return readCustomer();
+                case RENTAL:
+                    return readRental();
+                case VIOLATION:
+                    return readViolation();
+                default:
+                    throw new IllegalArgumentException("Unknown change source: " + source);
+            }
+        }
+
+        public Car readCar() {
+            try {
+                Integer id = readNullableInt();
+                long version = readVarLong();
+                return new Car(id, readString(), readString(), readDictionaryString(), readDictionaryString(),
+                        readEnum(CAR_STATUSES), readNullableInt(), version);
+            } catch (BufferUnderflowException e) {
+                throw truncated("car");
+            }
+        }
+
+        public Customer readCustomer() {
+            try {
+                Integer id = readNullableInt();
+                long version = readVarLong();
+                return new Customer(id, readString(), readNullableLong(), readNullableLong(), readNullableLong(),
+                        readString(), version);
+            } catch (BufferUnderflowException e) {
+                throw truncated("customer");
+            }
+        }
+
+        public Rental readRental() {
+            try {
+                Integer id = readNullableInt();
+                long version = readVarLong();
+                Integer customerId = readNullableInt();
+                Integer carId = readNullableInt();
+                long start = readVarLong();
+                String dateStart = readDateText(start, false);
+                long end = readVarLong();
+                String dateEnd = readDateText(end, false);
+                return new Rental(id, customerId, carId, dateStart, dateEnd, epochOf(start), epochOf(end),
+                        readNullableInt(), readEnum(DEPOSIT_STATUSES), readEnum(RENTAL_STATUSES), version);
+            } catch (BufferUnderflowException e) {
+                throw truncated("rental");
+            }
+        }
+
+        public Violation readViolation() {
+            try {
+                Integer id = readNullableInt();
+                long version = readVarLong();
+                Integer rentalId = readNullableInt();
+                long dateTimeValue = readVarLong();
+                String dateTime = readDateText(dateTimeValue, true);
+                return new Violation(id, rentalId, dateTime, epochOf(dateTimeValue), readDictionaryString(),
+                        readNullableInt(), readEnum(VIOLATION_STATUSES), version);
+            } catch (BufferUnderflowException e) {
+                throw truncated("violation");
+            }
+        }
+
+        public int readByte() {
+            try {
+                return in.get() & 0xFF;
+            } catch (BufferUnderflowException e) {
+                throw truncated("record header");
+            }
+        }
+
+        public void resetDictionary() {
+            dictionary.clear();
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = in.get();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("Malformed varint at offset " + in.position());
+        }
+
+        private Integer readNullableInt() {
+            long value = readVarLong();
+            return value == NULL ? null : (int) unzigzag(value - 1);
+        }
+
+        private Long readNullableLong() {
+            int start = in.position();
+            long value = readVarLong();
+            if (value == NULL) {
+                return in.position() - start == 1 ? null : Long.MIN_VALUE;
+            }
+            return unzigzag(value - 1);
+        }
+
+        private <E extends Enum<E>> E readEnum(E[] values) {
+            int value = in.get() & 0xFF;
+            if (value > values.length) {
+                throw new IllegalStateException("Unknown " + values[0].getDeclaringClass().getSimpleName()
+                        + " ordinal " + (value - 1));
+            }
+            return value == NULL ? null : values[value - 1];
+        }
+
+        // Reads from the backing array when there is one, otherwise copies only the string's own bytes
+        private String readString(int length) {
+            if (length > in.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            String value;
+            if (in.hasArray()) {
+                value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+                in.position(in.position() + length);
+            } else {
+                if (scratch.length < length) {
+                    scratch = new byte[Math.max(length, scratch.length * 2)];
+                }
+                in.get(scratch, 0, length);
+                value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+            return value;
+        }
+
+        private String readString() {
+            long length = readVarLong();
+            if (length == NULL) {
+                return null;
+            }
+            return readString(checkedLength(length - 1));
+        }
+
+        private String readDictionaryString() {
+            long tag = readVarLong();
+            if (tag == NULL) {
+                return null;
+            }
+            if (tag != LITERAL) {
+                if (tag - 2 >= dictionary.size()) {
+                    throw new IllegalStateException("Unknown dictionary entry " + (tag - 2));
+                }
+                return dictionary.get((int) (tag - 2));
+            }
+            long length = readVarLong();
+            if (length == NULL) {
+                throw new IllegalStateException("Dictionary literal without a value");
+            }
+            int bytes = checkedLength(length - 1);
+            String value = readString(bytes);
+            if (dictionary.size() < MAX_DICTIONARY_SIZE && bytes <= MAX_DICTIONARY_ENTRY) {
+                dictionary.add(value);
+            }
+            return value;
+        }
+
+        private static long epochOf(long dateValue) {
+            return dateValue >>> 1 == NULL ? Dates.INVALID : unzigzag((dateValue >>> 1) - 1);
+        }
+
+        private String readDateText(long dateValue, boolean withTime) {
+            if ((dateValue & 1) != 0) {
+                return readString();
+            }
+            long epoch = epochOf(dateValue);
+            if (epoch == Dates.INVALID) {
+                throw new IllegalStateException("Date without text or value");
+            }
+            return withTime ? Dates.formatEpochMinute(epoch) : Dates.formatEpochDay(epoch);
+        }
+
+        private int checkedLength(long length) {
+            if (length > in.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            return (int) length;
+        }
+
+        private IllegalStateException truncated(String what) {
+            return new IllegalStateException("Truncated " + what + " record");
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package carrental.infrastructure;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Id sets per enum constant. The map is filled once in the constructor and never changes shape,
+ * so concurrent readers only ever touch the thread-safe sets inside it.
+ */
+class EnumIdIndex<E extends Enum<E>> {
+    private final Map<E, Set<Integer>> index;
+
+    EnumIdIndex(Class<E> type) {
+        index = new EnumMap<>(type);
+        for (E constant : type.getEnumConstants()) {
+            index.put(constant, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    void add(E key, Integer id) {
+        if (key != null) {
+            index.get(key).add(id);
+        }
+    }
+
+    void addAll(IdGroups<E> groups) {
+        groups.forEach((key, ids) -> index.get(key).addAll(ids));
+    }
+
+    // The ids appear under to before they leave from, so a reader that re-checks the stored value never loses them
+    void move(E from, E to, Collection<Integer> ids) {
+        index.get(to).addAll(ids);
+        index.get(from).removeAll(ids);
+    }
+
+    void remove(E key, Integer id) {
+        if (key != null) {
+            index.get(key).remove(id);
+        }
+    }
+
+    Set<Integer> get(E key) {
+        return key != null ? index.get(key) : Collections.<Integer>emptySet();
+    }
+
+    void clear() {
+        for (Set<Integer> ids : index.values()) {
+            ids.clear();
+        }
+    }
+}
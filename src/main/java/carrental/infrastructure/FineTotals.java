@@ -0,0 +1,75 @@
+package carrental.infrastructure;
+
+import carrental.domain.model.Violation;
+import carrental.domain.model.ViolationStatus;
+
+import java.util.List;
+
+/**
+ * Running fine sums for one rental, adjusted as violations are saved, updated and deleted.
+ */
+class FineTotals {
+    private int total;
+    private int pending;
+    private int paid;
+    private int pendingCount;
+    private int count;
+
+    synchronized void add(Violation violation) {
+        apply(violation, 1);
+    }
+
+    synchronized void subtract(Violation violation) {
+        apply(violation, -1);
+    }
+
+    // Swaps a group of violations for their updated versions under one lock hold
+    synchronized void replace(List<Violation> before, List<Violation> after) {
+        for (Violation violation : before) {
+            apply(violation, -1);
+        }
+        for (Violation violation : after) {
+            apply(violation, 1);
+        }
+    }
+
+    synchronized int getTotal() {
+        return total;
+    }
+
+    synchronized int getPending() {
+        return pending;
+    }
+
+    synchronized int getPaid() {
+        return paid;
+    }
+
+    synchronized boolean hasPending() {
+        return pendingCount > 0;
+    }
+
+    synchronized boolean isEmpty() {
+        return count == 0;
+    }
+
+    private void apply(Violation violation, int sign) {
+        int amount = violation.getFineAmount() != null ? violation.getFineAmount() : 0;
+        total += sign * amount;
+        count += sign;
+        if (isPending(violation)) {
+            pending += sign * amount;
+            pendingCount += sign;
+        } else if (isPaid(violation)) {
+            paid += sign * amount;
+        }
+    }
+
+    static boolean isPending(Violation violation) {
+        return violation.getStatus() == ViolationStatus.PENDING;
+    }
+
+    static boolean isPaid(Violation violation) {
+        return violation.getStatus() == ViolationStatus.PAID;
+    }
+}
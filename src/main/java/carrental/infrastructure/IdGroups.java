@@ -0,0 +1,25 @@
+package carrental.infrastructure;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Single-threaded staging area for bulk index builds: ids are grouped per key in plain lists first,
+ * so each concurrent id set is created once at its final size instead of growing row by row.
+ */
+class IdGroups<K> {
+    private final Map<K, List<Integer>> groups = new HashMap<>();
+
+    void add(K key, Integer id) {
+        if (key != null) {
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(id);
+        }
+    }
+
+    void forEach(BiConsumer<K, List<Integer>> action) {
+        groups.forEach(action);
+    }
+}
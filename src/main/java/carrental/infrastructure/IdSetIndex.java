@@ -0,0 +1,57 @@
+package carrental.infrastructure;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+class IdSetIndex<K> {
+    private final Map<K, Set<Integer>> index = new ConcurrentHashMap<>();
+
+    void add(K key, Integer id) {
+        if (key == null) {
+            return;
+        }
+        index.compute(key, (k, ids) -> {
+            if (ids == null) {
+                ids = ConcurrentHashMap.newKeySet();
+            }
+            ids.add(id);
+            return ids;
+        });
+    }
+
+    void addAll(IdGroups<K> groups) {
+        groups.forEach((key, ids) -> index.compute(key, (k, existing) -> {
+            Set<Integer> merged = existing != null ? existing : ConcurrentHashMap.newKeySet(ids.size());
+            merged.addAll(ids);
+            return merged;
+        }));
+    }
+
+    void remove(K key, Integer id) {
+        if (key == null) {
+            return;
+        }
+        index.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    Set<Integer> get(K key) {
+        if (key == null) {
+            return Collections.emptySet();
+        }
+        Set<Integer> ids = index.get(key);
+        return ids != null ? ids : Collections.<Integer>emptySet();
+    }
+
+    boolean contains(K key) {
+        return !get(key).isEmpty();
+    }
+
+    void clear() {
+        index.clear();
+    }
+}
@@ -1,35 +1,91 @@
 package carrental.infrastructure;
 
 import carrental.domain.model.Car;
+import carrental.domain.model.CarStatus;
+import carrental.domain.repository.ChangeEvent;
+import carrental.domain.repository.CarQuery;
 import carrental.domain.repository.CarRepository;
+import carrental.domain.repository.OptimisticLockException;
+import carrental.domain.repository.QueryPlan;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 public class InMemoryCarRepository implements CarRepository {
-    private final Map<Integer, Car> storage = new ConcurrentHashMap<>();
+    private final ConcurrentIntMap<Car> storage = new ConcurrentIntMap<>();
     private final AtomicInteger idCounter = new AtomicInteger(1);
 
+    // Secondary indexes, kept in step with storage inside compute(); VIN and brand keys are upper-cased
+    private final IdSetIndex<String> vinIndex = new IdSetIndex<>();
+    private final EnumIdIndex<CarStatus> statusIndex = new EnumIdIndex<>(CarStatus.class);
+    private final IdSetIndex<String> brandIndex = new IdSetIndex<>();
+    private final ChangeListener changes;
+
+    public InMemoryCarRepository() {
+        this(null);
+    }
+
+    // Every applied write is reported to changes, when given, from inside the stripe lock, so the events for
+    // one car arrive in the order its writes were applied
+    public InMemoryCarRepository(ChangeListener changes) {
+        this.changes = changes;
+    }
+
     @Override
     public Car save(Car car) {
+        return store(withId(car));
+    }
+
+    // Bulk load path: the row goes into storage only and stays out of the indexes until rebuildIndexes()
+    @Override
+    public Car saveUnindexed(Car car) {
+        beforeWrite();
+        Car withId = withId(car);
+        Car stored = storage.compute(withId.getCarId(), (id, previous) -> {
+            Car next = withId.withVersion(previous != null ? previous.getVersion() + 1 : 1);
+            publish(ChangeEvent.Type.SAVED, next);
+            return next;
+        });
+        afterWrite();
+        return stored;
+    }
+
+    @Override
+    public void restore(Car car) {
         if (car.getCarId() == null) {
-            Car newCar = new Car(
-                    idCounter.getAndIncrement(),
-                    car.getVin(),
-                    car.getLicensePlate(),
-                    car.getBrand(),
-                    car.getModel(),
-                    car.getStatus(),
-                    car.getHourlyRate()
-            );
-            storage.put(newCar.getCarId(), newCar);
-            return newCar;
-        } else {
-            storage.put(car.getCarId(), car);
-            return car;
+            throw new IllegalArgumentException("Car ID is required for a restore");
+        }
+        idCounter.accumulateAndGet(car.getCarId() + 1, Math::max);
+        storage.put(car.getCarId(), car);
+    }
+
+    @Override
+    public Optional<Car> update(Car car) {
+        if (car.getCarId() == null) {
+            throw new IllegalArgumentException("Car ID is required for an update");
+        }
+        beforeWrite();
+        Car stored = storage.computeIfPresent(car.getCarId(), (id, previous) -> {
+            if (previous.getVersion() != car.getVersion()) {
+                throw new OptimisticLockException("Car", id, car.getVersion(), previous.getVersion());
+            }
+            Car next = car.withVersion(previous.getVersion() + 1);
+            unindex(previous);
+            index(next);
+            publish(ChangeEvent.Type.UPDATED, next);
+            return next;
+        });
+        if (stored != null) {
+            afterWrite();
         }
+        return Optional.ofNullable(stored);
+    }
+
+    @Override
+    public void ensureCapacity(int maxId) {
+        storage.ensureCapacity(maxId);
     }
 
     @Override
@@ -37,79 +93,256 @@ public class InMemoryCarRepository implements CarRepository {
         return Optional.ofNullable(storage.get(id));
     }
 
+    @Override
+    public Map<Integer, Car> findAllById(Collection<Integer> ids) {
+        Map<Integer, Car> result = new HashMap<>(Math.max(16, ids.size() * 2));
+        for (Integer id : ids) {
+            Car car = id != null ? storage.get(id) : null;
+            if (car != null) {
+                result.put(id, car);
+            }
+        }
+        return result;
+    }
+
     @Override
     public List<Car> findAll() {
         return new ArrayList<>(storage.values());
     }
 
+    @Override
+    public List<Car> findPage(Integer afterId, int limit) {
+        return storage.page(afterId, limit);
+    }
+
+    @Override
+    public Stream<Car> streamAll() {
+        return storage.values().stream();
+    }
+
     @Override
     public void delete(Integer id) {
-        storage.remove(id);
+        beforeWrite();
+        storage.computeIfPresent(id, (key, previous) -> {
+            unindex(previous);
+            publish(ChangeEvent.Type.DELETED, previous);
+            return null;
+        });
+        afterWrite();
     }
 
     @Override
     public Optional<Car> findByVin(String vin) {
-        return storage.values().stream()
-                .filter(car -> car.getVin().equalsIgnoreCase(vin))
-                .findFirst();
+        for (Integer id : vinIndex.get(normalize(vin))) {
+            Car car = storage.get(id);
+            if (car != null && car.getVin().equalsIgnoreCase(vin)) {
+                return Optional.of(car);
+            }
+        }
+        return Optional.empty();
     }
 
     @Override
-    public List<Car> findByStatus(String status) {
-        return storage.values().stream()
-                .filter(car -> car.getStatus().equalsIgnoreCase(status))
-                .collect(Collectors.toList());
+    public List<Car> findByStatus(CarStatus status) {
+        List<Car> result = new ArrayList<>();
+        for (Integer id : statusIndex.get(status)) {
+            Car car = storage.get(id);
+            if (car != null && car.getStatus() == status) {
+                result.add(car);
+            }
+        }
+        return result;
     }
 
     @Override
     public List<Car> findByBrand(String brand) {
-        return storage.values().stream()
-                .filter(car -> car.getBrand().equalsIgnoreCase(brand))
-                .collect(Collectors.toList());
+        List<Car> result = new ArrayList<>();
+        for (Integer id : brandIndex.get(normalize(brand))) {
+            Car car = storage.get(id);
+            if (car != null && car.getBrand().equalsIgnoreCase(brand)) {
+                result.add(car);
+            }
+        }
+        return result;
     }
 
     @Override
     public boolean existsByVin(String vin) {
-        return storage.values().stream()
-                .anyMatch(car -> car.getVin().equalsIgnoreCase(vin));
+        return vinIndex.contains(normalize(vin));
+    }
+
+    @Override
+    public boolean updateStatus(Integer carId, CarStatus status) {
+        return update(carId, ChangeEvent.Type.STATUS_CHANGED, car -> withStatus(car, status));
     }
 
     @Override
-    public boolean updateStatus(Integer carId, String status) {
-        Optional<Car> carOpt = findById(carId);
-        if (carOpt.isPresent()) {
-            Car car = carOpt.get();
-            Car updatedCar = new Car(
-                    car.getCarId(),
+    public boolean compareAndSetStatus(Integer carId, CarStatus expected, CarStatus status) {
+        return update(carId, ChangeEvent.Type.STATUS_CHANGED,
+                car -> car.getStatus() == expected ? withStatus(car, status) : null);
+    }
+
+    @Override
+    public void rebuildIndexes() {
+        clearIndexes();
+        IdGroups<String> byVin = new IdGroups<>();
+        IdGroups<CarStatus> byStatus = new IdGroups<>();
+        IdGroups<String> byBrand = new IdGroups<>();
+        for (Car car : storage.values()) {
+            byVin.add(normalize(car.getVin()), car.getCarId());
+            byStatus.add(car.getStatus(), car.getCarId());
+            byBrand.add(normalize(car.getBrand()), car.getCarId());
+        }
+        vinIndex.addAll(byVin);
+        statusIndex.addAll(byStatus);
+        brandIndex.addAll(byBrand);
+    }
+
+    @Override
+    public List<Car> query(CarQuery query) {
+        return plan(query).execute(storage::get, storage.values(), query::matches, query.comparator(),
+                query.getSortBy() == CarQuery.SortBy.ID && !query.isDescending(), query.getLimit());
+    }
+
+    @Override
+    public QueryPlan explain(CarQuery query) {
+        return plan(query).plan(storage.size(), query.order(), query.getLimit());
+    }
+
+    private QueryPlanner plan(CarQuery query) {
+        QueryPlanner planner = new QueryPlanner(query.filters());
+        if (query.getStatus() != null) {
+            planner.consider(statusIndex.get(query.getStatus()), "status index", "status");
+        }
+        if (query.getBrand() != null) {
+            planner.consider(brandIndex.get(normalize(query.getBrand())), "brand index", "brand");
+        }
+        return planner;
+    }
+
+    // Applies change to the current car under its stripe lock; a null result leaves the car untouched
+    private boolean update(Integer carId, ChangeEvent.Type type, UnaryOperator<Car> change) {
+        beforeWrite();
+        boolean[] applied = new boolean[1];
+        storage.computeIfPresent(carId, (id, car) -> {
+            Car updatedCar = change.apply(car);
+            if (updatedCar == null) {
+                return car;
+            }
+            unindex(car);
+            index(updatedCar);
+            publish(type, updatedCar);
+            applied[0] = true;
+            return updatedCar;
+        });
+        if (applied[0]) {
+            afterWrite();
+        }
+        return applied[0];
+    }
+
+    private static Car withStatus(Car car, CarStatus status) {
+        return new Car(
+                car.getCarId(),
+                car.getVin(),
+                car.getLicensePlate(),
+                car.getBrand(),
+                car.getModel(),
+                status,
+                car.getHourlyRate(),
+                car.getVersion() + 1
+        );
+    }
+
+    private Car withId(Car car) {
+        if (car.getCarId() == null) {
+            return new Car(
+                    idCounter.getAndIncrement(),
                     car.getVin(),
                     car.getLicensePlate(),
                     car.getBrand(),
                     car.getModel(),
-                    status,
+                    car.getStatus(),
                     car.getHourlyRate()
             );
-            storage.put(carId, updatedCar);
-            return true;
         }
-        return false;
+        // Keep generated ids clear of explicitly assigned ones, e.g. rows from a bulk import
+        idCounter.accumulateAndGet(car.getCarId() + 1, Math::max);
+        return car;
+    }
+
+    private Car store(Car car) {
+        beforeWrite();
+        Car stored = storage.compute(car.getCarId(), (id, previous) -> {
+            Car next = car.withVersion(previous != null ? previous.getVersion() + 1 : 1);
+            if (previous != null) {
+                unindex(previous);
+            }
+            index(next);
+            publish(ChangeEvent.Type.SAVED, next);
+            return next;
+        });
+        afterWrite();
+        return stored;
+    }
+
+    private void publish(ChangeEvent.Type type, Car car) {
+        if (changes != null) {
+            changes.changed(ChangeEvent.Source.CAR, type, car.getCarId(), car);
+        }
+    }
+
+    private void beforeWrite() {
+        if (changes != null) {
+            changes.beforeWrite();
+        }
+    }
+
+    private void afterWrite() {
+        if (changes != null) {
+            changes.afterWrite();
+        }
+    }
+
+    private void index(Car car) {
+        vinIndex.add(normalize(car.getVin()), car.getCarId());
+        statusIndex.add(car.getStatus(), car.getCarId());
+        brandIndex.add(normalize(car.getBrand()), car.getCarId());
+    }
+
+    private void unindex(Car car) {
+        vinIndex.remove(normalize(car.getVin()), car.getCarId());
+        statusIndex.remove(car.getStatus(), car.getCarId());
+        brandIndex.remove(normalize(car.getBrand()), car.getCarId());
+    }
+
+    private static String normalize(String value) {
+        return value != null ? value.toUpperCase(Locale.ROOT) : null;
     }
 
     public void initializeWithSampleData() {
         if (storage.isEmpty()) {
-            save(new Car(null, "1HGCM82633A123456", "ABC123", "Toyota", "Camry", "AVAILABLE", 25));
-            save(new Car(null, "2FMDK3GC5DBA45678", "XYZ789", "Honda", "Civic", "AVAILABLE", 20));
-            save(new Car(null, "1G1ZE5ST1GF123789", "DEF456", "Ford", "Focus", "RENTED", 22));
-            save(new Car(null, "5YJSA1CN5DFP12345", "GHI789", "Tesla", "Model 3", "MAINTENANCE", 50));
-            save(new Car(null, "WAUZZZ8V3KA123456", "JKL012", "Audi", "A4", "AVAILABLE", 45));
+            save(new Car(null, "1HGCM82633A123456", "ABC123", "Toyota", "Camry", CarStatus.AVAILABLE, 25));
+            save(new Car(null, "2FMDK3GC5DBA45678", "XYZ789", "Honda", "Civic", CarStatus.AVAILABLE, 20));
+            save(new Car(null, "1G1ZE5ST1GF123789", "DEF456", "Ford", "Focus", CarStatus.RENTED, 22));
+            save(new Car(null, "5YJSA1CN5DFP12345", "GHI789", "Tesla", "Model 3", CarStatus.MAINTENANCE, 50));
+            save(new Car(null, "WAUZZZ8V3KA123456", "JKL012", "Audi", "A4", CarStatus.AVAILABLE, 45));
         }
     }
 
     public void clear() {
         storage.clear();
+        clearIndexes();
         idCounter.set(1);
     }
 
+    private void clearIndexes() {
+        vinIndex.clear();
+        statusIndex.clear();
+        brandIndex.clear();
+    }
+
     public int size() {
         return storage.size();
     }
-}
\ No newline at end of file
+}
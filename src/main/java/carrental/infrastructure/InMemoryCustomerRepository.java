@@ -1,34 +1,68 @@
 package carrental.infrastructure;
 
 import carrental.domain.model.Customer;
+import carrental.domain.repository.ChangeEvent;
+import carrental.domain.repository.CustomerQuery;
 import carrental.domain.repository.CustomerRepository;
+import carrental.domain.repository.OptimisticLockException;
+import carrental.domain.repository.QueryPlan;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class InMemoryCustomerRepository implements CustomerRepository {
-    private final Map<Integer, Customer> storage = new ConcurrentHashMap<>();
+    private final ConcurrentIntMap<Customer> storage = new ConcurrentIntMap<>();
     private final AtomicInteger idCounter = new AtomicInteger(1);
 
+    private final LongIntUniqueIndex driverLicenseIndex = new LongIntUniqueIndex();
+    private final LongIntUniqueIndex passportIndex = new LongIntUniqueIndex();
+    private final LongIntUniqueIndex phoneIndex = new LongIntUniqueIndex();
+    private final TrigramIndex nameIndex = new TrigramIndex();
+    private final TrigramIndex addressIndex = new TrigramIndex();
+    private final ChangeListener changes;
+
+    public InMemoryCustomerRepository() {
+        this(null);
+    }
+
+    public InMemoryCustomerRepository(ChangeListener changes) {
+        this.changes = changes;
+    }
+
     @Override
     public Customer save(Customer customer) {
+        return store(withId(customer), false, true);
+    }
+
+    // Bulk load path: unique keys are still claimed, but the name and address trigrams wait for rebuildIndexes()
+    @Override
+    public Customer saveUnindexed(Customer customer) {
+        return store(withId(customer), false, false);
+    }
+
+    @Override
+    public void restore(Customer customer) {
         if (customer.getCustomerId() == null) {
-            Customer newCustomer = new Customer(
-                    idCounter.getAndIncrement(),
-                    customer.getFullName(),
-                    customer.getPassport(),
-                    customer.getDriverLicense(),
-                    customer.getPhone(),
-                    customer.getAddress()
-            );
-            storage.put(newCustomer.getCustomerId(), newCustomer);
-            return newCustomer;
-        } else {
-            storage.put(customer.getCustomerId(), customer);
-            return customer;
+            throw new IllegalArgumentException("Customer ID is required for a restore");
+        }
+        idCounter.accumulateAndGet(customer.getCustomerId() + 1, Math::max);
+        storage.put(customer.getCustomerId(), customer);
+    }
+
+    @Override
+    public Optional<Customer> update(Customer customer) {
+        if (customer.getCustomerId() == null) {
+            throw new IllegalArgumentException("Customer ID is required for an update");
         }
+        return Optional.ofNullable(store(customer, true, true));
+    }
+
+    @Override
+    public void ensureCapacity(int maxId) {
+        storage.ensureCapacity(maxId);
     }
 
     @Override
@@ -36,55 +70,227 @@ public class InMemoryCustomerRepository implements CustomerRepository {
         return Optional.ofNullable(storage.get(id));
     }
 
+    @Override
+    public Map<Integer, Customer> findAllById(Collection<Integer> ids) {
+        Map<Integer, Customer> result = new HashMap<>(Math.max(16, ids.size() * 2));
+        for (Integer id : ids) {
+            Customer customer = id != null ? storage.get(id) : null;
+            if (customer != null) {
+                result.put(id, customer);
+            }
+        }
+        return result;
+    }
+
     @Override
     public List<Customer> findAll() {
         return new ArrayList<>(storage.values());
     }
 
+    @Override
+    public List<Customer> findPage(Integer afterId, int limit) {
+        return storage.page(afterId, limit);
+    }
+
+    @Override
+    public Stream<Customer> streamAll() {
+        return storage.values().stream();
+    }
+
     @Override
     public void delete(Integer id) {
-        storage.remove(id);
+        beforeWrite();
+        storage.computeIfPresent(id, (key, previous) -> {
+            publish(ChangeEvent.Type.DELETED, previous);
+            release(driverLicenseIndex, previous.getDriverLicense(), null, key);
+            release(passportIndex, previous.getPassport(), null, key);
+            release(phoneIndex, previous.getPhone(), null, key);
+            nameIndex.remove(key, previous.getFullName());
+            addressIndex.remove(key, previous.getAddress());
+            return null;
+        });
+        afterWrite();
     }
 
     @Override
     public Optional<Customer> findByDriverLicense(Long driverLicense) {
-        return storage.values().stream()
-                .filter(customer -> customer.getDriverLicense().equals(driverLicense))
-                .findFirst();
+        return lookup(driverLicenseIndex, driverLicense);
     }
 
     @Override
     public Optional<Customer> findByPassport(Long passport) {
-        return storage.values().stream()
-                .filter(customer -> customer.getPassport().equals(passport))
-                .findFirst();
+        return lookup(passportIndex, passport);
     }
 
     @Override
     public Optional<Customer> findByPhone(Long phone) {
-        return storage.values().stream()
-                .filter(customer -> customer.getPhone().equals(phone))
-                .findFirst();
+        return lookup(phoneIndex, phone);
     }
 
     @Override
     public boolean existsByDriverLicense(Long driverLicense) {
-        return storage.values().stream()
-                .anyMatch(customer -> customer.getDriverLicense().equals(driverLicense));
+        return driverLicense != null && driverLicenseIndex.contains(driverLicense);
     }
 
     @Override
     public boolean existsByPassport(Long passport) {
-        return storage.values().stream()
-                .anyMatch(customer -> customer.getPassport().equals(passport));
+        return passport != null && passportIndex.contains(passport);
     }
 
     @Override
     public List<Customer> findByNameContaining(String name) {
-        String searchTerm = name.toLowerCase();
-        return storage.values().stream()
-                .filter(customer -> customer.getFullName().toLowerCase().contains(searchTerm))
-                .collect(Collectors.toList());
+        String searchTerm = TrigramIndex.fold(name);
+        return search(nameIndex.candidates(searchTerm),
+                customer -> TrigramIndex.fold(customer.getFullName()).contains(searchTerm));
+    }
+
+    @Override
+    public List<Customer> query(CustomerQuery query) {
+        return plan(query).execute(storage::get, storage.values(), query::matches, query.comparator(),
+                query.getSortBy() == CustomerQuery.SortBy.ID && !query.isDescending(), query.getLimit());
+    }
+
+    @Override
+    public QueryPlan explain(CustomerQuery query) {
+        return plan(query).plan(storage.size(), query.order(), query.getLimit());
+    }
+
+    // Trigram postings are only a superset of the matches, so the substring filters always stay residual
+    private QueryPlanner plan(CustomerQuery query) {
+        QueryPlanner planner = new QueryPlanner(query.filters());
+        Set<Integer> byName = query.getNameContains() != null ? nameIndex.candidates(query.getNameContains()) : null;
+        if (byName != null) {
+            planner.consider(byName, "fullName trigram index");
+        }
+        Set<Integer> byAddress = query.getAddressContains() != null ? addressIndex.candidates(query.getAddressContains()) : null;
+        if (byAddress != null) {
+            planner.consider(byAddress, "address trigram index");
+        }
+        return planner;
+    }
+
+    private Customer withId(Customer customer) {
+        if (customer.getCustomerId() == null) {
+            return new Customer(
+                    idCounter.getAndIncrement(),
+                    customer.getFullName(),
+                    customer.getPassport(),
+                    customer.getDriverLicense(),
+                    customer.getPhone(),
+                    customer.getAddress()
+            );
+        }
+        idCounter.accumulateAndGet(customer.getCustomerId() + 1, Math::max);
+        return customer;
+    }
+
+    // With checkVersion the save only replaces an existing customer whose version matches, and returns null if absent.
+    // Unique keys are always claimed here, so duplicates are rejected row by row even on the bulk load path
+    private Customer store(Customer update, boolean checkVersion, boolean indexText) {
+        beforeWrite();
+        Customer stored = storage.compute(update.getCustomerId(), (id, previous) -> {
+            if (checkVersion) {
+                if (previous == null) {
+                    return null;
+                }
+                if (previous.getVersion() != update.getVersion()) {
+                    throw new OptimisticLockException("Customer", id, update.getVersion(), previous.getVersion());
+                }
+            }
+            Customer customer = update.withVersion(previous != null ? previous.getVersion() + 1 : 1);
+            Long oldDriverLicense = previous != null ? previous.getDriverLicense() : null;
+            Long oldPassport = previous != null ? previous.getPassport() : null;
+            Long oldPhone = previous != null ? previous.getPhone() : null;
+
+            // Claim every new key before releasing old ones, so a rejected save leaves the indexes untouched
+            boolean driverLicenseClaimed = false;
+            boolean passportClaimed = false;
+            try {
+                driverLicenseClaimed = claim(driverLicenseIndex, customer.getDriverLicense(), oldDriverLicense, id, "driver license");
+                passportClaimed = claim(passportIndex, customer.getPassport(), oldPassport, id, "passport");
+                claim(phoneIndex, customer.getPhone(), oldPhone, id, "phone");
+            } catch (IllegalArgumentException e) {
+                if (passportClaimed) {
+                    passportIndex.remove(customer.getPassport(), id);
+                }
+                if (driverLicenseClaimed) {
+                    driverLicenseIndex.remove(customer.getDriverLicense(), id);
+                }
+                throw e;
+            }
+
+            // Published before old keys are released, so a customer that takes over a released key is always
+            // recorded after the one that gave it up
+            publish(checkVersion ? ChangeEvent.Type.UPDATED : ChangeEvent.Type.SAVED, customer);
+            release(driverLicenseIndex, oldDriverLicense, customer.getDriverLicense(), id);
+            release(passportIndex, oldPassport, customer.getPassport(), id);
+            release(phoneIndex, oldPhone, customer.getPhone(), id);
+
+            if (!indexText) {
+                return customer;
+            }
+            String oldName = previous != null ? previous.getFullName() : null;
+            if (!Objects.equals(oldName, customer.getFullName())) {
+                nameIndex.remove(id, oldName);
+                nameIndex.add(id, customer.getFullName());
+            }
+            String oldAddress = previous != null ? previous.getAddress() : null;
+            if (!Objects.equals(oldAddress, customer.getAddress())) {
+                addressIndex.remove(id, oldAddress);
+                addressIndex.add(id, customer.getAddress());
+            }
+            return customer;
+        });
+        if (stored != null) {
+            afterWrite();
+        }
+        return stored;
+    }
+
+    private void publish(ChangeEvent.Type type, Customer customer) {
+        if (changes != null) {
+            changes.changed(ChangeEvent.Source.CUSTOMER, type, customer.getCustomerId(), customer);
+        }
+    }
+
+    private void beforeWrite() {
+        if (changes != null) {
+            changes.beforeWrite();
+        }
+    }
+
+    private void afterWrite() {
+        if (changes != null) {
+            changes.afterWrite();
+        }
+    }
+
+    private static boolean claim(LongIntUniqueIndex index, Long key, Long previousKey, Integer id, String field) {
+        if (key == null || key.equals(previousKey)) {
+            return false;
+        }
+        if (index.putIfAbsent(key, id) != LongIntUniqueIndex.NO_ID) {
+            throw new IllegalArgumentException("Customer with " + field + " " + key + " already exists");
+        }
+        return true;
+    }
+
+    private static void release(LongIntUniqueIndex index, Long key, Long keptKey, Integer id) {
+        if (key == null || key.equals(keptKey)) {
+            return;
+        }
+        index.remove(key, id);
+    }
+
+    private Optional<Customer> lookup(LongIntUniqueIndex index, Long key) {
+        if (key == null) {
+            return Optional.empty();
+        }
+        int id = index.get(key);
+        if (id == LongIntUniqueIndex.NO_ID) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(storage.get(id));
     }
 
     public void initializeWithSampleData() {
@@ -99,16 +305,65 @@ public class InMemoryCustomerRepository implements CustomerRepository {
 
     public void clear() {
         storage.clear();
+        driverLicenseIndex.clear();
+        passportIndex.clear();
+        phoneIndex.clear();
+        nameIndex.clear();
+        addressIndex.clear();
         idCounter.set(1);
     }
 
+    // saveUnindexed already claims unique keys, but restore() does not: a snapshot taken while a key moved
+    // between customers can briefly hold it twice until the log replay settles, so all keys are claimed here
+    @Override
+    public void rebuildIndexes() {
+        driverLicenseIndex.clear();
+        passportIndex.clear();
+        phoneIndex.clear();
+        nameIndex.clear();
+        addressIndex.clear();
+        IdGroups<Long> nameGrams = new IdGroups<>();
+        IdGroups<Long> addressGrams = new IdGroups<>();
+        for (Customer customer : storage.values()) {
+            Integer id = customer.getCustomerId();
+            try {
+                claim(driverLicenseIndex, customer.getDriverLicense(), null, id, "driver license");
+                claim(passportIndex, customer.getPassport(), null, id, "passport");
+                claim(phoneIndex, customer.getPhone(), null, id, "phone");
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Stored customers violate a unique key: " + e.getMessage(), e);
+            }
+            TrigramIndex.stage(nameGrams, customer.getCustomerId(), customer.getFullName());
+            TrigramIndex.stage(addressGrams, customer.getCustomerId(), customer.getAddress());
+        }
+        nameIndex.addAll(nameGrams);
+        addressIndex.addAll(addressGrams);
+    }
+
     public int size() {
         return storage.size();
     }
 
     public List<Customer> findByCity(String city) {
-        return storage.values().stream()
-                .filter(customer -> customer.getAddress().toLowerCase().contains(city.toLowerCase()))
-                .collect(Collectors.toList());
+        String searchTerm = TrigramIndex.fold(city);
+        return search(addressIndex.candidates(searchTerm),
+                customer -> TrigramIndex.fold(customer.getAddress()).contains(searchTerm));
+    }
+
+    // Verifies index candidates against the real predicate; terms shorter than a trigram fall back to a scan
+    private List<Customer> search(Set<Integer> candidates, Predicate<Customer> matches) {
+        if (candidates == null) {
+            return storage.values().stream()
+                    .filter(matches)
+                    .collect(Collectors.toList());
+        }
+        List<Customer> result = new ArrayList<>();
+        for (Integer id : candidates) {
+            Customer customer = storage.get(id);
+            if (customer != null && matches.test(customer)) {
+                result.add(customer);
+            }
+        }
+        return result;
     }
 }
\ No newline at end of file
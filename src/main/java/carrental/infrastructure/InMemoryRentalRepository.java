@@ -1,38 +1,93 @@
 package carrental.infrastructure;
 
+import carrental.domain.model.Dates;
+import carrental.domain.model.DepositStatus;
 import carrental.domain.model.Rental;
+import carrental.domain.repository.ChangeEvent;
+import carrental.domain.model.RentalStatus;
+import carrental.domain.repository.OptimisticLockException;
+import carrental.domain.repository.QueryPlan;
+import carrental.domain.repository.RentalQuery;
 import carrental.domain.repository.RentalRepository;
 
-import java.time.LocalDate;
-import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 public class InMemoryRentalRepository implements RentalRepository {
-    private final Map<Integer, Rental> storage = new ConcurrentHashMap<>();
+    private final ConcurrentIntMap<Rental> storage = new ConcurrentIntMap<>();
     private final AtomicInteger idCounter = new AtomicInteger(1);
 
+    private final IdSetIndex<Integer> customerIndex = new IdSetIndex<>();
+    private final IdSetIndex<Integer> carIndex = new IdSetIndex<>();
+    private final EnumIdIndex<RentalStatus> statusIndex = new EnumIdIndex<>(RentalStatus.class);
+    private final Map<RentalStatus, IdSetIndex<Integer>> customerStatusIndex = perStatus();
+    private final Map<RentalStatus, IdSetIndex<Integer>> carStatusIndex = perStatus();
+    private final SortedIdIndex startDateIndex = new SortedIdIndex();
+    private final ChangeListener changes;
+
+    public InMemoryRentalRepository() {
+        this(null);
+    }
+
+    public InMemoryRentalRepository(ChangeListener changes) {
+        this.changes = changes;
+    }
+
     @Override
     public Rental save(Rental rental) {
+        return store(withId(rental));
+    }
+
+    // Bulk load path: the row goes into storage only and stays out of the indexes until rebuildIndexes()
+    @Override
+    public Rental saveUnindexed(Rental rental) {
+        beforeWrite();
+        Rental withId = withId(rental);
+        Rental stored = storage.compute(withId.getRentalId(), (id, previous) -> {
+            Rental next = withId.withVersion(previous != null ? previous.getVersion() + 1 : 1);
+            publish(ChangeEvent.Type.SAVED, next);
+            return next;
+        });
+        afterWrite();
+        return stored;
+    }
+
+    @Override
+    public void restore(Rental rental) {
         if (rental.getRentalId() == null) {
-            Rental newRental = new Rental(
-                    idCounter.getAndIncrement(),
-                    rental.getCustomerId(),
-                    rental.getCarId(),
-                    rental.getDateStart(),
-                    rental.getDateEnd(),
-                    rental.getCostFact(),
-                    rental.getDepositeStatus(),
-                    rental.getStatus()
-            );
-            storage.put(newRental.getRentalId(), newRental);
-            return newRental;
-        } else {
-            storage.put(rental.getRentalId(), rental);
-            return rental;
+            throw new IllegalArgumentException("Rental ID is required for a restore");
         }
+        idCounter.accumulateAndGet(rental.getRentalId() + 1, Math::max);
+        storage.put(rental.getRentalId(), rental);
+    }
+
+    @Override
+    public Optional<Rental> update(Rental rental) {
+        if (rental.getRentalId() == null) {
+            throw new IllegalArgumentException("Rental ID is required for an update");
+        }
+        beforeWrite();
+        Rental stored = storage.computeIfPresent(rental.getRentalId(), (id, previous) -> {
+            if (previous.getVersion() != rental.getVersion()) {
+                throw new OptimisticLockException("Rental", id, rental.getVersion(), previous.getVersion());
+            }
+            Rental next = rental.withVersion(previous.getVersion() + 1);
+            unindex(previous);
+            index(next);
+            publish(ChangeEvent.Type.UPDATED, next);
+            return next;
+        });
+        if (stored != null) {
+            afterWrite();
+        }
+        return Optional.ofNullable(stored);
+    }
+
+    @Override
+    public void ensureCapacity(int maxId) {
+        storage.ensureCapacity(maxId);
     }
 
     @Override
@@ -40,150 +95,378 @@ public class InMemoryRentalRepository implements RentalRepository {
         return Optional.ofNullable(storage.get(id));
     }
 
+    @Override
+    public Map<Integer, Rental> findAllById(Collection<Integer> ids) {
+        Map<Integer, Rental> result = new HashMap<>(Math.max(16, ids.size() * 2));
+        for (Integer id : ids) {
+            Rental rental = id != null ? storage.get(id) : null;
+            if (rental != null) {
+                result.put(id, rental);
+            }
+        }
+        return result;
+    }
+
     @Override
     public List<Rental> findAll() {
         return new ArrayList<>(storage.values());
     }
 
+    @Override
+    public List<Rental> findPage(Integer afterId, int limit) {
+        return storage.page(afterId, limit);
+    }
+
+    @Override
+    public Stream<Rental> streamAll() {
+        return storage.values().stream();
+    }
+
     @Override
     public void delete(Integer id) {
-        storage.remove(id);
+        beforeWrite();
+        storage.computeIfPresent(id, (key, previous) -> {
+            unindex(previous);
+            publish(ChangeEvent.Type.DELETED, previous);
+            return null;
+        });
+        afterWrite();
     }
 
     @Override
     public List<Rental> findByCustomerId(Integer customerId) {
-        return storage.values().stream()
-                .filter(rental -> rental.getCustomerId().equals(customerId))
-                .collect(Collectors.toList());
+        return resolve(customerIndex.get(customerId), null);
     }
 
     @Override
     public List<Rental> findByCarId(Integer carId) {
-        return storage.values().stream()
-                .filter(rental -> rental.getCarId().equals(carId))
-                .collect(Collectors.toList());
+        return resolve(carIndex.get(carId), null);
     }
 
     @Override
     public List<Rental> findActiveRentals() {
-        return storage.values().stream()
-                .filter(rental -> "ACTIVE".equalsIgnoreCase(rental.getStatus()))
-                .collect(Collectors.toList());
+        return findByStatus(RentalStatus.ACTIVE);
     }
 
     @Override
     public List<Rental> findCompletedRentals() {
-        return storage.values().stream()
-                .filter(rental -> "COMPLETED".equalsIgnoreCase(rental.getStatus()))
-                .collect(Collectors.toList());
+        return findByStatus(RentalStatus.COMPLETED);
     }
 
     @Override
-    public List<Rental> findByStatus(String status) {
-        return storage.values().stream()
-                .filter(rental -> rental.getStatus().equalsIgnoreCase(status))
-                .collect(Collectors.toList());
+    public List<Rental> findByStatus(RentalStatus status) {
+        return resolve(statusIndex.get(status), status);
     }
 
     @Override
     public boolean isCarCurrentlyRented(Integer carId) {
-        return storage.values().stream()
-                .anyMatch(rental -> rental.getCarId().equals(carId) &&
-                        "ACTIVE".equalsIgnoreCase(rental.getStatus()));
+        return carStatusIndex.get(RentalStatus.ACTIVE).contains(carId);
     }
 
     @Override
     public boolean hasActiveRentals(Integer customerId) {
-        return storage.values().stream()
-                .anyMatch(rental -> rental.getCustomerId().equals(customerId) &&
-                        "ACTIVE".equalsIgnoreCase(rental.getStatus()));
+        return customerStatusIndex.get(RentalStatus.ACTIVE).contains(customerId);
     }
 
     @Override
-    public boolean updateStatus(Integer rentalId, String status) {
-        Optional<Rental> rentalOpt = findById(rentalId);
-        if (rentalOpt.isPresent()) {
-            Rental rental = rentalOpt.get();
-            Rental updatedRental = new Rental(
-                    rental.getRentalId(),
-                    rental.getCustomerId(),
-                    rental.getCarId(),
-                    rental.getDateStart(),
-                    rental.getDateEnd(),
-                    rental.getCostFact(),
-                    rental.getDepositeStatus(),
-                    status
-            );
-            storage.put(rentalId, updatedRental);
-            return true;
+    public int countActiveRentals(Integer customerId) {
+        return customerStatusIndex.get(RentalStatus.ACTIVE).get(customerId).size();
+    }
+
+    @Override
+    public boolean updateStatus(Integer rentalId, RentalStatus status) {
+        return update(rentalId, ChangeEvent.Type.STATUS_CHANGED,
+                rental -> withStatus(rental, rental.getDepositeStatus(), status));
+    }
+
+    @Override
+    public boolean compareAndSetStatus(Integer rentalId, RentalStatus expected, RentalStatus status) {
+        return update(rentalId, ChangeEvent.Type.STATUS_CHANGED, rental -> rental.getStatus() == expected
+                ? withStatus(rental, rental.getDepositeStatus(), status) : null);
+    }
+
+    @Override
+    public boolean updateDepositStatus(Integer rentalId, DepositStatus depositStatus) {
+        return update(rentalId, ChangeEvent.Type.UPDATED,
+                rental -> withStatus(rental, depositStatus, rental.getStatus()));
+    }
+
+    @Override
+    public boolean compareAndSetDepositStatus(Integer rentalId, DepositStatus expected, DepositStatus depositStatus) {
+        return update(rentalId, ChangeEvent.Type.UPDATED, rental -> rental.getDepositeStatus() == expected
+                ? withStatus(rental, depositStatus, rental.getStatus()) : null);
+    }
+
+    @Override
+    public List<Rental> findByDateRange(String startDate, String endDate) {
+        long rangeStart = Dates.parseEpochDay(startDate);
+        long rangeEnd = Dates.parseEpochDay(endDate);
+        if (rangeStart == Dates.INVALID || rangeEnd == Dates.INVALID) {
+            return Collections.emptyList();
+        }
+
+        List<Rental> result = new ArrayList<>();
+        for (Integer id : startDateIndex.range(rangeStart, rangeEnd + 1)) {
+            Rental rental = storage.get(id);
+            if (rental != null) {
+                result.add(rental);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Rental> findByCustomerIdAndStatus(Integer customerId, RentalStatus status) {
+        if (status == null) {
+            return new ArrayList<>();
+        }
+        return resolve(customerStatusIndex.get(status).get(customerId), status);
+    }
+
+    @Override
+    public void rebuildIndexes() {
+        clearIndexes();
+        IdGroups<Integer> byCustomer = new IdGroups<>();
+        IdGroups<Integer> byCar = new IdGroups<>();
+        IdGroups<RentalStatus> byStatus = new IdGroups<>();
+        Map<RentalStatus, IdGroups<Integer>> byCustomerStatus = new EnumMap<>(RentalStatus.class);
+        Map<RentalStatus, IdGroups<Integer>> byCarStatus = new EnumMap<>(RentalStatus.class);
+        for (RentalStatus status : RentalStatus.values()) {
+            byCustomerStatus.put(status, new IdGroups<>());
+            byCarStatus.put(status, new IdGroups<>());
+        }
+        IdGroups<Long> byStartDate = new IdGroups<>();
+
+        for (Rental rental : storage.values()) {
+            Integer id = rental.getRentalId();
+            RentalStatus status = rental.getStatus();
+            byCustomer.add(rental.getCustomerId(), id);
+            byCar.add(rental.getCarId(), id);
+            byStatus.add(status, id);
+            if (status != null) {
+                byCustomerStatus.get(status).add(rental.getCustomerId(), id);
+                byCarStatus.get(status).add(rental.getCarId(), id);
+            }
+            if (rental.getStartEpochDay() != Dates.INVALID) {
+                byStartDate.add(rental.getStartEpochDay(), id);
+            }
+        }
+
+        customerIndex.addAll(byCustomer);
+        carIndex.addAll(byCar);
+        statusIndex.addAll(byStatus);
+        for (RentalStatus status : RentalStatus.values()) {
+            customerStatusIndex.get(status).addAll(byCustomerStatus.get(status));
+            carStatusIndex.get(status).addAll(byCarStatus.get(status));
         }
-        return false;
+        startDateIndex.addAll(byStartDate);
     }
 
     @Override
-    public boolean updateDepositStatus(Integer rentalId, String depositStatus) {
-        Optional<Rental> rentalOpt = findById(rentalId);
-        if (rentalOpt.isPresent()) {
-            Rental rental = rentalOpt.get();
-            Rental updatedRental = new Rental(
-                    rental.getRentalId(),
+    public List<Rental> query(RentalQuery query) {
+        return plan(query).execute(storage::get, storage.values(), query::matches, query.comparator(),
+                query.getSortBy() == RentalQuery.SortBy.ID && !query.isDescending(), query.getLimit());
+    }
+
+    @Override
+    public QueryPlan explain(RentalQuery query) {
+        return plan(query).plan(storage.size(), query.order(), query.getLimit());
+    }
+
+    private QueryPlanner plan(RentalQuery query) {
+        QueryPlanner planner = new QueryPlanner(query.filters());
+        RentalStatus status = query.getStatus();
+        if (query.getCustomerId() != null) {
+            planner.consider(customerIndex.get(query.getCustomerId()), "customerId index", "customerId");
+            if (status != null) {
+                planner.consider(customerStatusIndex.get(status).get(query.getCustomerId()),
+                        "customerId+status index", "customerId", "status");
+            }
+        }
+        if (query.getCarId() != null) {
+            planner.consider(carIndex.get(query.getCarId()), "carId index", "carId");
+            if (status != null) {
+                planner.consider(carStatusIndex.get(status).get(query.getCarId()),
+                        "carId+status index", "carId", "status");
+            }
+        }
+        if (status != null) {
+            planner.consider(statusIndex.get(status), "status index", "status");
+        }
+        if (query.hasDateRange()) {
+            planner.considerRange(startDateIndex, query.getStartFromDay(), query.getStartToDay() + 1,
+                    "dateStart range index", "dateStart");
+        }
+        return planner;
+    }
+
+    // Applies change to the current rental under its stripe lock; a null result leaves the rental untouched
+    private boolean update(Integer rentalId, ChangeEvent.Type type, UnaryOperator<Rental> change) {
+        beforeWrite();
+        boolean[] applied = new boolean[1];
+        storage.computeIfPresent(rentalId, (id, rental) -> {
+            Rental updatedRental = change.apply(rental);
+            if (updatedRental == null) {
+                return rental;
+            }
+            unindex(rental);
+            index(updatedRental);
+            publish(type, updatedRental);
+            applied[0] = true;
+            return updatedRental;
+        });
+        if (applied[0]) {
+            afterWrite();
+        }
+        return applied[0];
+    }
+
+    private static Rental withStatus(Rental rental, DepositStatus depositStatus, RentalStatus status) {
+        return new Rental(
+                rental.getRentalId(),
+                rental.getCustomerId(),
+                rental.getCarId(),
+                rental.getDateStart(),
+                rental.getDateEnd(),
+                rental.getStartEpochDay(),
+                rental.getEndEpochDay(),
+                rental.getCostFact(),
+                depositStatus,
+                status,
+                rental.getVersion() + 1
+        );
+    }
+
+    private Rental withId(Rental rental) {
+        if (rental.getRentalId() == null) {
+            return new Rental(
+                    idCounter.getAndIncrement(),
                     rental.getCustomerId(),
                     rental.getCarId(),
                     rental.getDateStart(),
                     rental.getDateEnd(),
+                    rental.getStartEpochDay(),
+                    rental.getEndEpochDay(),
                     rental.getCostFact(),
-                    depositStatus,
+                    rental.getDepositeStatus(),
                     rental.getStatus()
             );
-            storage.put(rentalId, updatedRental);
-            return true;
         }
-        return false;
+        idCounter.accumulateAndGet(rental.getRentalId() + 1, Math::max);
+        return rental;
     }
 
-    @Override
-    public List<Rental> findByDateRange(String startDate, String endDate) {
-        try {
-            LocalDate rangeStart = LocalDate.parse(startDate);
-            LocalDate rangeEnd = LocalDate.parse(endDate);
-
-            return storage.values().stream()
-                    .filter(rental -> {
-                        try {
-                            LocalDate rentalStart = LocalDate.parse(rental.getDateStart());
-                            return !rentalStart.isBefore(rangeStart) && !rentalStart.isAfter(rangeEnd);
-                        } catch (DateTimeParseException e) {
-                            return false;
-                        }
-                    })
-                    .collect(Collectors.toList());
-        } catch (DateTimeParseException e) {
-            return Collections.emptyList();
+    private Rental store(Rental rental) {
+        beforeWrite();
+        Rental stored = storage.compute(rental.getRentalId(), (id, previous) -> {
+            Rental next = rental.withVersion(previous != null ? previous.getVersion() + 1 : 1);
+            if (previous != null) {
+                unindex(previous);
+            }
+            index(next);
+            publish(ChangeEvent.Type.SAVED, next);
+            return next;
+        });
+        afterWrite();
+        return stored;
+    }
+
+    private void publish(ChangeEvent.Type type, Rental rental) {
+        if (changes != null) {
+            changes.changed(ChangeEvent.Source.RENTAL, type, rental.getRentalId(), rental);
         }
     }
 
-    @Override
-    public List<Rental> findByCustomerIdAndStatus(Integer customerId, String status) {
-        return storage.values().stream()
-                .filter(rental -> rental.getCustomerId().equals(customerId) &&
-                        rental.getStatus().equalsIgnoreCase(status))
-                .collect(Collectors.toList());
+    private void beforeWrite() {
+        if (changes != null) {
+            changes.beforeWrite();
+        }
+    }
+
+    private void afterWrite() {
+        if (changes != null) {
+            changes.afterWrite();
+        }
+    }
+
+    private void index(Rental rental) {
+        Integer id = rental.getRentalId();
+        RentalStatus status = rental.getStatus();
+        customerIndex.add(rental.getCustomerId(), id);
+        carIndex.add(rental.getCarId(), id);
+        statusIndex.add(status, id);
+        if (status != null) {
+            customerStatusIndex.get(status).add(rental.getCustomerId(), id);
+            carStatusIndex.get(status).add(rental.getCarId(), id);
+        }
+        if (rental.getStartEpochDay() != Dates.INVALID) {
+            startDateIndex.add(rental.getStartEpochDay(), id);
+        }
+    }
+
+    private void unindex(Rental rental) {
+        Integer id = rental.getRentalId();
+        RentalStatus status = rental.getStatus();
+        customerIndex.remove(rental.getCustomerId(), id);
+        carIndex.remove(rental.getCarId(), id);
+        statusIndex.remove(status, id);
+        if (status != null) {
+            customerStatusIndex.get(status).remove(rental.getCustomerId(), id);
+            carStatusIndex.get(status).remove(rental.getCarId(), id);
+        }
+        if (rental.getStartEpochDay() != Dates.INVALID) {
+            startDateIndex.remove(rental.getStartEpochDay(), id);
+        }
+    }
+
+    // Ids come from the index; the status re-check covers a reader racing an in-flight update
+    private List<Rental> resolve(Set<Integer> ids, RentalStatus status) {
+        List<Rental> result = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Rental rental = storage.get(id);
+            if (rental != null && (status == null || rental.getStatus() == status)) {
+                result.add(rental);
+            }
+        }
+        return result;
+    }
+
+    private static Map<RentalStatus, IdSetIndex<Integer>> perStatus() {
+        Map<RentalStatus, IdSetIndex<Integer>> index = new EnumMap<>(RentalStatus.class);
+        for (RentalStatus status : RentalStatus.values()) {
+            index.put(status, new IdSetIndex<>());
+        }
+        return index;
     }
 
     public void initializeWithSampleData() {
         if (storage.isEmpty()) {
-            save(new Rental(null, 1, 1, "2024-12-10", "2024-12-12", 150, "REFUNDED", "COMPLETED"));
-            save(new Rental(null, 2, 2, "2024-12-13", "2024-12-15", 120, "PAID", "COMPLETED"));
-            save(new Rental(null, 3, 3, "2024-12-14", "2024-12-16", 176, "PAID", "ACTIVE"));
-            save(new Rental(null, 1, 4, "2024-12-11", "2024-12-13", 300, "REFUNDED", "COMPLETED"));
+            save(new Rental(null, 1, 1, "2024-12-10", "2024-12-12", 150, DepositStatus.REFUNDED, RentalStatus.COMPLETED));
+            save(new Rental(null, 2, 2, "2024-12-13", "2024-12-15", 120, DepositStatus.PAID, RentalStatus.COMPLETED));
+            save(new Rental(null, 3, 3, "2024-12-14", "2024-12-16", 176, DepositStatus.PAID, RentalStatus.ACTIVE));
+            save(new Rental(null, 1, 4, "2024-12-11", "2024-12-13", 300, DepositStatus.REFUNDED, RentalStatus.COMPLETED));
         }
     }
 
     public void clear() {
         storage.clear();
+        clearIndexes();
         idCounter.set(1);
     }
 
+    private void clearIndexes() {
+        customerIndex.clear();
+        carIndex.clear();
+        statusIndex.clear();
+        for (IdSetIndex<Integer> index : customerStatusIndex.values()) {
+            index.clear();
+        }
+        for (IdSetIndex<Integer> index : carStatusIndex.values()) {
+            index.clear();
+        }
+        startDateIndex.clear();
+    }
+
     public int size() {
         return storage.size();
     }
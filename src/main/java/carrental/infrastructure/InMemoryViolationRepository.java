@@ -1,36 +1,93 @@
 package carrental.infrastructure;
 
+import carrental.domain.model.Dates;
 import carrental.domain.model.Violation;
+import carrental.domain.repository.ChangeEvent;
+import carrental.domain.model.ViolationStatus;
+import carrental.domain.repository.OptimisticLockException;
+import carrental.domain.repository.QueryPlan;
+import carrental.domain.repository.ViolationQuery;
 import carrental.domain.repository.ViolationRepository;
 
-import java.time.LocalDate;
-import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class InMemoryViolationRepository implements ViolationRepository {
-    private final Map<Integer, Violation> storage = new ConcurrentHashMap<>();
+    private final ConcurrentIntMap<Violation> storage = new ConcurrentIntMap<>();
     private final AtomicInteger idCounter = new AtomicInteger(1);
 
+    private final IdSetIndex<Integer> rentalIndex = new IdSetIndex<>();
+    private final EnumIdIndex<ViolationStatus> statusIndex = new EnumIdIndex<>(ViolationStatus.class);
+    private final SortedIdIndex dateTimeIndex = new SortedIdIndex();
+    private final Map<Integer, FineTotals> totalsByRental = new ConcurrentHashMap<>();
+    private final AtomicInteger paidRevenue = new AtomicInteger();
+    private final ChangeListener changes;
+
+    public InMemoryViolationRepository() {
+        this(null);
+    }
+
+    public InMemoryViolationRepository(ChangeListener changes) {
+        this.changes = changes;
+    }
+
     @Override
     public Violation save(Violation violation) {
+        return store(withId(violation));
+    }
+
+    // Bulk load path: the row goes into storage only and stays out of the indexes until rebuildIndexes()
+    @Override
+    public Violation saveUnindexed(Violation violation) {
+        beforeWrite();
+        Violation withId = withId(violation);
+        Violation stored = storage.compute(withId.getViolationId(), (id, previous) -> {
+            Violation next = withId.withVersion(previous != null ? previous.getVersion() + 1 : 1);
+            publish(ChangeEvent.Type.SAVED, next);
+            return next;
+        });
+        afterWrite();
+        return stored;
+    }
+
+    @Override
+    public void restore(Violation violation) {
         if (violation.getViolationId() == null) {
-            Violation newViolation = new Violation(
-                    idCounter.getAndIncrement(),
-                    violation.getRentalId(),
-                    violation.getDateTime(),
-                    violation.getDescription(),
-                    violation.getFineAmount(),
-                    violation.getStatus()
-            );
-            storage.put(newViolation.getViolationId(), newViolation);
-            return newViolation;
-        } else {
-            storage.put(violation.getViolationId(), violation);
-            return violation;
+            throw new IllegalArgumentException("Violation ID is required for a restore");
         }
+        idCounter.accumulateAndGet(violation.getViolationId() + 1, Math::max);
+        storage.put(violation.getViolationId(), violation);
+    }
+
+    @Override
+    public Optional<Violation> update(Violation violation) {
+        if (violation.getViolationId() == null) {
+            throw new IllegalArgumentException("Violation ID is required for an update");
+        }
+        beforeWrite();
+        Violation stored = storage.computeIfPresent(violation.getViolationId(), (id, previous) -> {
+            if (previous.getVersion() != violation.getVersion()) {
+                throw new OptimisticLockException("Violation", id, violation.getVersion(), previous.getVersion());
+            }
+            Violation next = violation.withVersion(previous.getVersion() + 1);
+            unindex(previous);
+            index(next);
+            publish(ChangeEvent.Type.UPDATED, next);
+            return next;
+        });
+        if (stored != null) {
+            afterWrite();
+        }
+        return Optional.ofNullable(stored);
+    }
+
+    @Override
+    public void ensureCapacity(int maxId) {
+        storage.ensureCapacity(maxId);
     }
 
     @Override
@@ -43,33 +100,45 @@ public class InMemoryViolationRepository implements ViolationRepository {
         return new ArrayList<>(storage.values());
     }
 
+    @Override
+    public List<Violation> findPage(Integer afterId, int limit) {
+        return storage.page(afterId, limit);
+    }
+
+    @Override
+    public Stream<Violation> streamAll() {
+        return storage.values().stream();
+    }
+
     @Override
     public void delete(Integer id) {
-        storage.remove(id);
+        beforeWrite();
+        storage.computeIfPresent(id, (key, previous) -> {
+            unindex(previous);
+            publish(ChangeEvent.Type.DELETED, previous);
+            return null;
+        });
+        afterWrite();
     }
 
     @Override
     public List<Violation> findByRentalId(Integer rentalId) {
-        return storage.values().stream()
-                .filter(violation -> violation.getRentalId().equals(rentalId))
-                .collect(Collectors.toList());
+        return resolve(rentalIndex.get(rentalId), null);
     }
 
     @Override
-    public List<Violation> findByStatus(String status) {
-        return storage.values().stream()
-                .filter(violation -> violation.getStatus().equalsIgnoreCase(status))
-                .collect(Collectors.toList());
+    public List<Violation> findByStatus(ViolationStatus status) {
+        return resolve(statusIndex.get(status), status);
     }
 
     @Override
     public List<Violation> findPendingViolations() {
-        return findByStatus("PENDING");
+        return findByStatus(ViolationStatus.PENDING);
     }
 
     @Override
     public List<Violation> findPaidViolations() {
-        return findByStatus("PAID");
+        return findByStatus(ViolationStatus.PAID);
     }
 
     @Override
@@ -81,116 +150,355 @@ public class InMemoryViolationRepository implements ViolationRepository {
 
     @Override
     public List<Violation> findByDateRange(String startDate, String endDate) {
-        try {
-            LocalDate rangeStart = LocalDate.parse(startDate);
-            LocalDate rangeEnd = LocalDate.parse(endDate);
-
-            return storage.values().stream()
-                    .filter(violation -> {
-                        try {
-                            String violationDateStr = violation.getDateTime().substring(0, 10); // Extract YYYY-MM-DD
-                            LocalDate violationDate = LocalDate.parse(violationDateStr);
-                            return !violationDate.isBefore(rangeStart) && !violationDate.isAfter(rangeEnd);
-                        } catch (DateTimeParseException e) {
-                            return false;
-                        }
-                    })
-                    .collect(Collectors.toList());
-        } catch (DateTimeParseException e) {
+        long startDay = Dates.parseEpochDay(startDate);
+        long endDay = Dates.parseEpochDay(endDate);
+        if (startDay == Dates.INVALID || endDay == Dates.INVALID) {
             return Collections.emptyList();
         }
+
+        List<Violation> result = new ArrayList<>();
+        for (Integer id : dateTimeIndex.range(startDay * Dates.MINUTES_PER_DAY, (endDay + 1) * Dates.MINUTES_PER_DAY)) {
+            Violation violation = storage.get(id);
+            if (violation != null) {
+                result.add(violation);
+            }
+        }
+        return result;
     }
 
     @Override
-    public boolean updateStatus(Integer violationId, String status) {
-        Optional<Violation> violationOpt = findById(violationId);
-        if (violationOpt.isPresent()) {
-            Violation violation = violationOpt.get();
-            Violation updatedViolation = new Violation(
-                    violation.getViolationId(),
-                    violation.getRentalId(),
-                    violation.getDateTime(),
-                    violation.getDescription(),
-                    violation.getFineAmount(),
-                    status
-            );
-            storage.put(violationId, updatedViolation);
-            return true;
-        }
-        return false;
+    public boolean updateStatus(Integer violationId, ViolationStatus status) {
+        return update(violationId, ChangeEvent.Type.STATUS_CHANGED,
+                violation -> with(violation, violation.getFineAmount(), status));
+    }
+
+    @Override
+    public boolean compareAndSetStatus(Integer violationId, ViolationStatus expected, ViolationStatus status) {
+        return update(violationId, ChangeEvent.Type.STATUS_CHANGED, violation -> violation.getStatus() == expected
+                ? with(violation, violation.getFineAmount(), status) : null);
     }
 
     @Override
     public boolean updateFineAmount(Integer violationId, Integer fineAmount) {
-        Optional<Violation> violationOpt = findById(violationId);
-        if (violationOpt.isPresent()) {
-            Violation violation = violationOpt.get();
-            Violation updatedViolation = new Violation(
-                    violation.getViolationId(),
-                    violation.getRentalId(),
-                    violation.getDateTime(),
-                    violation.getDescription(),
-                    fineAmount,
-                    violation.getStatus()
-            );
-            storage.put(violationId, updatedViolation);
-            return true;
-        }
-        return false;
+        return update(violationId, ChangeEvent.Type.FINE_CHANGED,
+                violation -> with(violation, fineAmount, violation.getStatus()));
+    }
+
+    @Override
+    public boolean compareAndSetFineAmount(Integer violationId, Integer expected, Integer fineAmount) {
+        return update(violationId, ChangeEvent.Type.FINE_CHANGED,
+                violation -> Objects.equals(violation.getFineAmount(), expected)
+                        ? with(violation, fineAmount, violation.getStatus()) : null);
     }
 
     @Override
     public boolean existsByRentalId(Integer rentalId) {
-        return storage.values().stream()
-                .anyMatch(violation -> violation.getRentalId().equals(rentalId));
+        return rentalIndex.contains(rentalId);
     }
 
     @Override
     public Integer getTotalFinesByRentalId(Integer rentalId) {
-        return storage.values().stream()
-                .filter(violation -> violation.getRentalId().equals(rentalId))
-                .mapToInt(Violation::getFineAmount)
-                .sum();
+        FineTotals totals = totalsFor(rentalId);
+        return totals != null ? totals.getTotal() : 0;
     }
 
     @Override
     public Integer getTotalPendingFinesByRentalId(Integer rentalId) {
-        return storage.values().stream()
-                .filter(violation -> violation.getRentalId().equals(rentalId) &&
-                        "PENDING".equalsIgnoreCase(violation.getStatus()))
-                .mapToInt(Violation::getFineAmount)
-                .sum();
+        FineTotals totals = totalsFor(rentalId);
+        return totals != null ? totals.getPending() : 0;
     }
 
     @Override
-    public List<Violation> findByRentalIdAndStatus(Integer rentalId, String status) {
-        return storage.values().stream()
-                .filter(violation -> violation.getRentalId().equals(rentalId) &&
-                        violation.getStatus().equalsIgnoreCase(status))
-                .collect(Collectors.toList());
+    public boolean hasPendingViolations(Integer rentalId) {
+        FineTotals totals = totalsFor(rentalId);
+        return totals != null && totals.hasPending();
+    }
+
+    @Override
+    public List<Violation> findByRentalIdAndStatus(Integer rentalId, ViolationStatus status) {
+        return resolve(rentalIndex.get(rentalId), status);
+    }
+
+    @Override
+    public int settlePending(Collection<Integer> rentalIds, ViolationStatus status) {
+        if (rentalIds == null) {
+            throw new IllegalArgumentException("Rental IDs are required");
+        }
+        if (status == null) {
+            throw new IllegalArgumentException("Violation status is required");
+        }
+        Set<Integer> rentals = new HashSet<>(rentalIds);
+        rentals.remove(null);
+        if (status == ViolationStatus.PENDING || rentals.isEmpty()) {
+            return 0;
+        }
+        beforeWrite();
+
+        // Every stripe is held for the whole batch and the violations are selected only once they are, so no
+        // write can add a violation to these rentals or change one in between, and the status index and
+        // per-rental totals each take a single update
+        int[] settled = new int[1];
+        storage.lockingAll(() -> {
+            Map<Integer, List<Violation>> before = new HashMap<>();
+            Map<Integer, List<Violation>> after = new HashMap<>();
+            List<Integer> ids = new ArrayList<>();
+            int paidDelta = 0;
+            for (Integer rentalId : rentals) {
+                for (Integer id : rentalIndex.get(rentalId)) {
+                    Violation current = storage.get(id);
+                    if (current == null || !FineTotals.isPending(current) || !rentalId.equals(current.getRentalId())) {
+                        continue;
+                    }
+                    Violation next = with(current, current.getFineAmount(), status);
+                    before.computeIfAbsent(rentalId, key -> new ArrayList<>()).add(current);
+                    after.computeIfAbsent(rentalId, key -> new ArrayList<>()).add(next);
+                    ids.add(id);
+                    if (FineTotals.isPaid(next) && next.getFineAmount() != null) {
+                        paidDelta += next.getFineAmount();
+                    }
+                }
+            }
+
+            statusIndex.move(ViolationStatus.PENDING, status, ids);
+            for (List<Violation> updated : after.values()) {
+                for (Violation violation : updated) {
+                    storage.put(violation.getViolationId(), violation);
+                    publish(ChangeEvent.Type.STATUS_CHANGED, violation);
+                }
+            }
+            for (Map.Entry<Integer, List<Violation>> entry : before.entrySet()) {
+                totalsFor(entry.getKey()).replace(entry.getValue(), after.get(entry.getKey()));
+            }
+            paidRevenue.addAndGet(paidDelta);
+            settled[0] = ids.size();
+        });
+        if (settled[0] > 0) {
+            afterWrite();
+        }
+        return settled[0];
+    }
+
+    public Integer getTotalPaidFinesByRentalId(Integer rentalId) {
+        FineTotals totals = totalsFor(rentalId);
+        return totals != null ? totals.getPaid() : 0;
     }
 
     public Integer getTotalRevenueFromFines() {
-        return storage.values().stream()
-                .filter(violation -> "PAID".equalsIgnoreCase(violation.getStatus()))
-                .mapToInt(Violation::getFineAmount)
-                .sum();
+        return paidRevenue.get();
+    }
+
+    @Override
+    public void rebuildIndexes() {
+        clearIndexes();
+        IdGroups<Integer> byRental = new IdGroups<>();
+        IdGroups<ViolationStatus> byStatus = new IdGroups<>();
+        IdGroups<Long> byDateTime = new IdGroups<>();
+        Map<Integer, FineTotals> totals = new HashMap<>();
+        int revenue = 0;
+        for (Violation violation : storage.values()) {
+            Integer id = violation.getViolationId();
+            byRental.add(violation.getRentalId(), id);
+            byStatus.add(violation.getStatus(), id);
+            if (violation.getEpochMinute() != Dates.INVALID) {
+                byDateTime.add(violation.getEpochMinute(), id);
+            }
+            if (violation.getRentalId() != null) {
+                totals.computeIfAbsent(violation.getRentalId(), key -> new FineTotals()).add(violation);
+            }
+            if (FineTotals.isPaid(violation) && violation.getFineAmount() != null) {
+                revenue += violation.getFineAmount();
+            }
+        }
+        rentalIndex.addAll(byRental);
+        statusIndex.addAll(byStatus);
+        dateTimeIndex.addAll(byDateTime);
+        totalsByRental.putAll(totals);
+        paidRevenue.addAndGet(revenue);
+    }
+
+    @Override
+    public List<Violation> query(ViolationQuery query) {
+        return plan(query).execute(storage::get, storage.values(), query::matches, query.comparator(),
+                query.getSortBy() == ViolationQuery.SortBy.ID && !query.isDescending(), query.getLimit());
+    }
+
+    @Override
+    public QueryPlan explain(ViolationQuery query) {
+        return plan(query).plan(storage.size(), query.order(), query.getLimit());
+    }
+
+    private QueryPlanner plan(ViolationQuery query) {
+        QueryPlanner planner = new QueryPlanner(query.filters());
+        if (query.getRentalId() != null) {
+            planner.consider(rentalIndex.get(query.getRentalId()), "rentalId index", "rentalId");
+        }
+        if (query.getStatus() != null) {
+            planner.consider(statusIndex.get(query.getStatus()), "status index", "status");
+        }
+        if (query.hasDateRange()) {
+            planner.considerRange(dateTimeIndex, query.getFromMinute(), query.getToMinuteExclusive(),
+                    "dateTime range index", "dateTime");
+        }
+        return planner;
+    }
+
+    // Applies change to the current violation under its stripe lock; a null result leaves it untouched
+    private boolean update(Integer violationId, ChangeEvent.Type type, UnaryOperator<Violation> change) {
+        beforeWrite();
+        boolean[] applied = new boolean[1];
+        storage.computeIfPresent(violationId, (id, violation) -> {
+            Violation updatedViolation = change.apply(violation);
+            if (updatedViolation == null) {
+                return violation;
+            }
+            unindex(violation);
+            index(updatedViolation);
+            publish(type, updatedViolation);
+            applied[0] = true;
+            return updatedViolation;
+        });
+        if (applied[0]) {
+            afterWrite();
+        }
+        return applied[0];
+    }
+
+    private static Violation with(Violation violation, Integer fineAmount, ViolationStatus status) {
+        return new Violation(
+                violation.getViolationId(),
+                violation.getRentalId(),
+                violation.getDateTime(),
+                violation.getEpochMinute(),
+                violation.getDescription(),
+                fineAmount,
+                status,
+                violation.getVersion() + 1
+        );
+    }
+
+    private Violation withId(Violation violation) {
+        if (violation.getViolationId() == null) {
+            return new Violation(
+                    idCounter.getAndIncrement(),
+                    violation.getRentalId(),
+                    violation.getDateTime(),
+                    violation.getEpochMinute(),
+                    violation.getDescription(),
+                    violation.getFineAmount(),
+                    violation.getStatus()
+            );
+        }
+        idCounter.accumulateAndGet(violation.getViolationId() + 1, Math::max);
+        return violation;
+    }
+
+    private Violation store(Violation violation) {
+        beforeWrite();
+        Violation stored = storage.compute(violation.getViolationId(), (id, previous) -> {
+            Violation next = violation.withVersion(previous != null ? previous.getVersion() + 1 : 1);
+            if (previous != null) {
+                unindex(previous);
+            }
+            index(next);
+            publish(ChangeEvent.Type.SAVED, next);
+            return next;
+        });
+        afterWrite();
+        return stored;
+    }
+
+    private void publish(ChangeEvent.Type type, Violation violation) {
+        if (changes != null) {
+            changes.changed(ChangeEvent.Source.VIOLATION, type, violation.getViolationId(), violation);
+        }
+    }
+
+    private void beforeWrite() {
+        if (changes != null) {
+            changes.beforeWrite();
+        }
+    }
+
+    private void afterWrite() {
+        if (changes != null) {
+            changes.afterWrite();
+        }
+    }
+
+    private void index(Violation violation) {
+        rentalIndex.add(violation.getRentalId(), violation.getViolationId());
+        statusIndex.add(violation.getStatus(), violation.getViolationId());
+        if (violation.getEpochMinute() != Dates.INVALID) {
+            dateTimeIndex.add(violation.getEpochMinute(), violation.getViolationId());
+        }
+        if (violation.getRentalId() != null) {
+            totalsByRental.compute(violation.getRentalId(), (key, totals) -> {
+                FineTotals updated = totals != null ? totals : new FineTotals();
+                updated.add(violation);
+                return updated;
+            });
+        }
+        if (FineTotals.isPaid(violation) && violation.getFineAmount() != null) {
+            paidRevenue.addAndGet(violation.getFineAmount());
+        }
+    }
+
+    private void unindex(Violation violation) {
+        rentalIndex.remove(violation.getRentalId(), violation.getViolationId());
+        statusIndex.remove(violation.getStatus(), violation.getViolationId());
+        if (violation.getEpochMinute() != Dates.INVALID) {
+            dateTimeIndex.remove(violation.getEpochMinute(), violation.getViolationId());
+        }
+        // A rental's totals go once its last violation does, so deleted rentals leave nothing behind
+        if (violation.getRentalId() != null) {
+            totalsByRental.computeIfPresent(violation.getRentalId(), (key, totals) -> {
+                totals.subtract(violation);
+                return totals.isEmpty() ? null : totals;
+            });
+        }
+        if (FineTotals.isPaid(violation) && violation.getFineAmount() != null) {
+            paidRevenue.addAndGet(-violation.getFineAmount());
+        }
+    }
+
+    private FineTotals totalsFor(Integer rentalId) {
+        return rentalId != null ? totalsByRental.get(rentalId) : null;
+    }
+
+    private List<Violation> resolve(Set<Integer> ids, ViolationStatus status) {
+        List<Violation> result = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Violation violation = storage.get(id);
+            if (violation != null && (status == null || violation.getStatus() == status)) {
+                result.add(violation);
+            }
+        }
+        return result;
     }
 
     public void initializeWithSampleData() {
         if (storage.isEmpty()) {
-            save(new Violation(null, 1, "2024-12-11 14:30", "Speeding ticket - 15mph over limit", 150, "PAID"));
-            save(new Violation(null, 1, "2024-12-12 10:00", "Parking in no-parking zone", 75, "PENDING"));
-            save(new Violation(null, 3, "2024-12-15 11:45", "Late return - 2 hours late", 50, "PENDING"));
-            save(new Violation(null, 2, "2024-12-14 09:00", "Car returned with empty gas tank", 35, "PAID"));
+            save(new Violation(null, 1, "2024-12-11 14:30", "Speeding ticket - 15mph over limit", 150, ViolationStatus.PAID));
+            save(new Violation(null, 1, "2024-12-12 10:00", "Parking in no-parking zone", 75, ViolationStatus.PENDING));
+            save(new Violation(null, 3, "2024-12-15 11:45", "Late return - 2 hours late", 50, ViolationStatus.PENDING));
+            save(new Violation(null, 2, "2024-12-14 09:00", "Car returned with empty gas tank", 35, ViolationStatus.PAID));
         }
     }
 
     public void clear() {
         storage.clear();
+        clearIndexes();
         idCounter.set(1);
     }
 
+    private void clearIndexes() {
+        rentalIndex.clear();
+        statusIndex.clear();
+        dateTimeIndex.clear();
+        totalsByRental.clear();
+        paidRevenue.set(0);
+    }
+
     public int size() {
         return storage.size();
     }
@@ -0,0 +1,171 @@
+package carrental.infrastructure;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Unique index from a primitive long key to an entity id.
+ * Open addressing with linear probing; reads are optimistic and never box.
+ */
+class LongIntUniqueIndex {
+    static final int NO_ID = Integer.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final StampedLock lock = new StampedLock();
+    // Replaced as a whole on resize, so an optimistic reader always sees arrays of one length
+    private Table table = new Table(INITIAL_CAPACITY);
+    private int size;
+
+    int get(long key) {
+        long stamp = lock.tryOptimisticRead();
+        int id = find(table, key);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                id = find(table, key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return id;
+    }
+
+    boolean contains(long key) {
+        return get(key) != NO_ID;
+    }
+
+    /**
+     * Maps the key to the id unless another id already owns it.
+     * Returns NO_ID on success, otherwise the id that owns the key.
+     */
+    int putIfAbsent(long key, int id) {
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int slot = slotOf(key, t);
+            if (t.used[slot]) {
+                return t.ids[slot] == id ? NO_ID : t.ids[slot];
+            }
+            if ((size + 1) * 2 > t.keys.length) {
+                t = resize();
+                slot = slotOf(key, t);
+            }
+            t.keys[slot] = key;
+            t.ids[slot] = id;
+            t.used[slot] = true;
+            size++;
+            return NO_ID;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the key only if it is still owned by the given id.
+     */
+    boolean remove(long key, int id) {
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int slot = slotOf(key, t);
+            if (!t.used[slot] || t.ids[slot] != id) {
+                return false;
+            }
+            deleteSlot(t, slot);
+            size--;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    void clear() {
+        long stamp = lock.writeLock();
+        try {
+            table = new Table(INITIAL_CAPACITY);
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static int find(Table t, long key) {
+        int mask = t.keys.length - 1;
+        int slot = hash(key) & mask;
+        // Bounded so that a torn optimistic read can never spin forever
+        for (int probes = 0; probes < t.keys.length; probes++) {
+            if (!t.used[slot]) {
+                return NO_ID;
+            }
+            if (t.keys[slot] == key) {
+                return t.ids[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_ID;
+    }
+
+    private static int slotOf(long key, Table t) {
+        int mask = t.keys.length - 1;
+        int slot = hash(key) & mask;
+        while (t.used[slot] && t.keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private static void deleteSlot(Table t, int slot) {
+        int mask = t.keys.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (t.used[next]) {
+            int home = hash(t.keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                t.keys[hole] = t.keys[next];
+                t.ids[hole] = t.ids[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        t.used[hole] = false;
+    }
+
+    private Table resize() {
+        Table old = table;
+        Table grown = new Table(old.keys.length * 2);
+        for (int i = 0; i < old.keys.length; i++) {
+            if (old.used[i]) {
+                int slot = slotOf(old.keys[i], grown);
+                grown.keys[slot] = old.keys[i];
+                grown.ids[slot] = old.ids[i];
+                grown.used[slot] = true;
+            }
+        }
+        table = grown;
+        return grown;
+    }
+
+    private static final class Table {
+        final long[] keys;
+        final int[] ids;
+        final boolean[] used;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            ids = new int[capacity];
+            used = new boolean[capacity];
+        }
+    }
+
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
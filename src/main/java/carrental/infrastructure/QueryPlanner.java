@@ -0,0 +1,75 @@
+package carrental.infrastructure;
+
+import carrental.domain.repository.QueryPlan;
+
+import java.util.*;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+/**
+ * Picks the most selective index for a query. Each repository offers every index that can serve one
+ * or more of the query's filters; the smallest candidate set wins and all other filters become residual.
+ * Execution always re-checks the full predicate, so an index only has to return a superset of the matches.
+ */
+class QueryPlanner {
+    private final List<String> filters;
+    private String access = QueryPlan.FULL_SCAN;
+    private Collection<Integer> candidates;
+    private List<String> served = Collections.emptyList();
+
+    QueryPlanner(List<String> filters) {
+        this.filters = filters;
+    }
+
+    void consider(Collection<Integer> ids, String access, String... servedFilters) {
+        // On a tie, prefer the index that serves more filters and so leaves less residual work
+        if (candidates == null || ids.size() < candidates.size()
+                || (ids.size() == candidates.size() && servedFilters.length > served.size())) {
+            this.candidates = ids;
+            this.access = access;
+            this.served = Arrays.asList(servedFilters);
+        }
+    }
+
+    // Range walks are cut off as soon as they can no longer beat the best index found so far
+    void considerRange(SortedIdIndex index, long fromInclusive, long toExclusive, String access, String servedFilter) {
+        int best = candidates != null ? candidates.size() : Integer.MAX_VALUE;
+        List<Integer> ids = index.range(fromInclusive, toExclusive, best);
+        if (ids.size() < best) {
+            consider(ids, access, servedFilter);
+        }
+    }
+
+    QueryPlan plan(int totalRows, String order, int limit) {
+        List<String> residual = new ArrayList<>(filters);
+        residual.removeAll(served);
+        return new QueryPlan(access, candidates != null ? candidates.size() : totalRows, residual, order, limit);
+    }
+
+    /**
+     * Runs the plan. A full scan walks storage in id order, so an ascending-id query stops at its limit.
+     */
+    <T> List<T> execute(IntFunction<T> lookup, Iterable<T> scan, Predicate<T> matches,
+                        Comparator<T> order, boolean ascendingIdOrder, int limit) {
+        List<T> result = new ArrayList<>();
+        if (candidates == null) {
+            for (T entity : scan) {
+                if (matches.test(entity)) {
+                    result.add(entity);
+                    if (ascendingIdOrder && result.size() >= limit) {
+                        return result;
+                    }
+                }
+            }
+        } else {
+            for (Integer id : candidates) {
+                T entity = lookup.apply(id);
+                if (entity != null && matches.test(entity)) {
+                    result.add(entity);
+                }
+            }
+        }
+        result.sort(order);
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+}
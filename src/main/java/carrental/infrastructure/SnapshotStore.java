@@ -0,0 +1,320 @@
+package carrental.infrastructure;
+
+import carrental.domain.model.Car;
+import carrental.domain.model.Customer;
+import carrental.domain.model.Rental;
+import carrental.domain.model.Violation;
+import carrental.domain.repository.CarRepository;
+import carrental.domain.repository.ChangeEvent;
+import carrental.domain.repository.CustomerRepository;
+import carrental.domain.repository.RentalRepository;
+import carrental.domain.repository.ViolationRepository;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Full copies of the four repositories, written as snapshot-&lt;n&gt;.snap files in one directory.
+ *
+ * A file starts with a magic number and the first change log segment that must be replayed on top of it,
+ * followed by blocks of up to BLOCK_ENTITIES entities of one source: [source][count][highest id][payload
+ * length][CRC32 of payload][payload], closed by an end marker. The payload is the blocks' entities in EntityCodec
+ * form, with a string dictionary of its own so that blocks decode independently. The file is written under a temporary name,
+ * forced and then renamed, so a snapshot on disk is always complete.
+ *
+ * Snapshots are fuzzy: the repositories stay writable while one is taken, so it can hold some writes that the
+ * log replay will apply again. Loading maps the blocks into memory and decodes them in place on all cores.
+ */
+public class SnapshotStore {
+    public static final int BLOCK_ENTITIES = 16384;
+
+    private static final long MAGIC = 0x4352534e41503032L; // "CRSNAP02"
+    private static final int END_OF_SNAPSHOT = 0xff;
+    private static final int BLOCK_HEADER_SIZE = 17;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snap";
+
+    private final Path directory;
+
+    public SnapshotStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    /**
+     * Writes a snapshot of the repositories and deletes the older ones. replayFrom is the first log segment
+     * holding writes that may be missing from it.
+     */
+    public Path write(long replayFrom, CarRepository cars, CustomerRepository customers,
+                      RentalRepository rentals, ViolationRepository violations) throws IOException {
+        List<Long> existing = snapshots();
+        long number = existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1;
+        Path target = snapshotPath(number);
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeLong(MAGIC);
+            out.writeLong(replayFrom);
+            BlockWriter blocks = new BlockWriter(out);
+            writeAll(blocks, ChangeEvent.Source.CAR, cars.streamAll());
+            writeAll(blocks, ChangeEvent.Source.CUSTOMER, customers.streamAll());
+            writeAll(blocks, ChangeEvent.Source.RENTAL, rentals.streamAll());
+            writeAll(blocks, ChangeEvent.Source.VIOLATION, violations.streamAll());
+            out.writeByte(END_OF_SNAPSHOT);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        for (long older : existing) {
+            Files.deleteIfExists(snapshotPath(older));
+        }
+        return target;
+    }
+
+    /**
+     * Restores the newest snapshot into the repositories, which must be empty and not yet in use. Returns the
+     * first log segment to replay on top of it, or 0 if there is no snapshot. Indexes are left for the caller
+     * to rebuild once the log has been replayed as well.
+     */
+    public long load(CarRepository cars, CustomerRepository customers,
+                     RentalRepository rentals, ViolationRepository violations) throws IOException {
+        List<Long> existing = snapshots();
+        if (existing.isEmpty()) {
+            return 0;
+        }
+        Path file = snapshotPath(existing.get(existing.size() - 1));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(16);
+            readFully(channel, header, 0);
+            if (header.getLong(0) != MAGIC) {
+                throw new IllegalStateException("Not a snapshot file: " + file);
+            }
+            long replayFrom = header.getLong(8);
+            List<Block> blocks = scan(channel, file);
+            Map<ChangeEvent.Source, Integer> maxIds = new EnumMap<>(ChangeEvent.Source.class);
+            for (Block block : blocks) {
+                maxIds.merge(block.source, block.maxId, Math::max);
+            }
+            maxIds.forEach((source, maxId) -> {
+                switch (source) {
+                    case CAR: cars.ensureCapacity(maxId); break;
+                    case CUSTOMER: customers.ensureCapacity(maxId); break;
+                    case RENTAL: rentals.ensureCapacity(maxId); break;
+                    default: violations.ensureCapacity(maxId); break;
+                }
+            });
+            int threads = Math.max(1, Math.min(blocks.size(), Runtime.getRuntime().availableProcessors()));
+            ExecutorService decoders = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> decoded = new ArrayList<>(blocks.size());
+                for (Block block : blocks) {
+                    decoded.add(decoders.submit(() -> {
+                        decode(channel, file, block, cars, customers, rentals, violations);
+                        return null;
+                    }));
+                }
+                for (Future<?> future : decoded) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while loading " + file, e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IllegalStateException("Failed to load " + file, cause);
+            } finally {
+                decoders.shutdownNow();
+            }
+            return replayFrom;
+        }
+    }
+
+    private static void writeAll(BlockWriter blocks, ChangeEvent.Source source, Stream<?> entities)
+            throws IOException {
+        try (Stream<?> stream = entities) {
+            Iterator<?> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                blocks.add(source, iterator.next());
+            }
+        }
+        blocks.finish();
+    }
+
+    private static List<Block> scan(FileChannel channel, Path file) throws IOException {
+        List<Block> blocks = new ArrayList<>();
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        long offset = 16;
+        long size = channel.size();
+        while (true) {
+            header.clear();
+            if (offset >= size) {
+                throw new IllegalStateException("Snapshot ends without its end marker: " + file);
+            }
+            header.limit(1);
+            readFully(channel, header, offset);
+            int source = header.get(0) & 0xff;
+            if (source == END_OF_SNAPSHOT) {
+                return blocks;
+            }
+            if (source >= ChangeEvent.Source.values().length || offset + BLOCK_HEADER_SIZE > size) {
+                throw new IllegalStateException("Corrupt block header at offset " + offset + " in " + file);
+            }
+            header.clear();
+            readFully(channel, header, offset);
+            Block block = new Block(ChangeEvent.Source.values()[source], header.getInt(1), header.getInt(5),
+                    offset + BLOCK_HEADER_SIZE, header.getInt(9), header.getInt(13));
+            if (block.length < 0 || block.offset + block.length > size) {
+                throw new IllegalStateException("Truncated block at offset " + offset + " in " + file);
+            }
+            blocks.add(block);
+            offset = block.offset + block.length;
+        }
+    }
+
+    private static void decode(FileChannel channel, Path file, Block block, CarRepository cars,
+                               CustomerRepository customers, RentalRepository rentals,
+                               ViolationRepository violations) throws IOException {
+        ByteBuffer payload = channel.map(FileChannel.MapMode.READ_ONLY, block.offset, block.length);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != block.crc) {
+            throw new IllegalStateException("Checksum mismatch in block at offset " + block.offset + " of " + file);
+        }
+        EntityCodec.Decoder in = new EntityCodec.Decoder(payload);
+        Consumer<Object> restore;
+        switch (block.source) {
+            case CAR:
+                restore = entity -> cars.restore((Car) entity);
+                break;
+            case CUSTOMER:
+                restore = entity -> customers.restore((Customer) entity);
+                break;
+            case RENTAL:
+                restore = entity -> rentals.restore((Rental) entity);
+                break;
+            default:
+                restore = entity -> violations.restore((Violation) entity);
+                break;
+        }
+        for (int i = 0; i < block.count; i++) {
+            restore.accept(in.read(block.source));
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IllegalStateException("Unexpected end of snapshot");
+            }
+            position += read;
+        }
+    }
+
+    private List<Long> snapshots() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    private Path snapshotPath(long number) {
+        return directory.resolve(String.format("%s%012d%s", PREFIX, number, SUFFIX));
+    }
+
+    private static final class Block {
+        final ChangeEvent.Source source;
+        final int count;
+        final int maxId;
+        final long offset;
+        final int length;
+        final int crc;
+
+        Block(ChangeEvent.Source source, int count, int maxId, long offset, int length, int crc) {
+            this.source = source;
+            this.count = count;
+            this.maxId = maxId;
+            this.offset = offset;
+            this.length = length;
+            this.crc = crc;
+        }
+    }
+
+    // Collects one source's entities into a block and writes it out once full
+    private static final class BlockWriter {
+        private final DataOutputStream out;
+        private final EntityCodec.Encoder payload = new EntityCodec.Encoder();
+        private final CRC32 crc = new CRC32();
+        private ChangeEvent.Source source;
+        private int count;
+        private int maxId;
+
+        BlockWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void add(ChangeEvent.Source source, Object entity) throws IOException {
+            this.source = source;
+            payload.write(source, entity);
+            maxId = Math.max(maxId, EntityCodec.idOf(source, entity));
+            if (++count == BLOCK_ENTITIES) {
+                finish();
+            }
+        }
+
+        void finish() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            crc.reset();
+            crc.update(payload.array(), 0, payload.size());
+            out.writeByte(source.ordinal());
+            out.writeInt(count);
+            out.writeInt(maxId);
+            out.writeInt(payload.size());
+            out.writeInt((int) crc.getValue());
+            out.write(payload.array(), 0, payload.size());
+            payload.reset();
+            payload.resetDictionary();
+            count = 0;
+            maxId = 0;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package carrental.infrastructure;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Ordered index from a primitive sort key (epoch day, epoch minute) to entity ids.
+ */
+class SortedIdIndex {
+    private final ConcurrentSkipListMap<Long, Set<Integer>> index = new ConcurrentSkipListMap<>();
+
+    void add(long key, Integer id) {
+        index.compute(key, (k, ids) -> {
+            if (ids == null) {
+                ids = ConcurrentHashMap.newKeySet();
+            }
+            ids.add(id);
+            return ids;
+        });
+    }
+
+    void addAll(IdGroups<Long> groups) {
+        groups.forEach((key, ids) -> index.compute(key, (k, existing) -> {
+            Set<Integer> merged = existing != null ? existing : ConcurrentHashMap.newKeySet(ids.size());
+            merged.addAll(ids);
+            return merged;
+        }));
+    }
+
+    void remove(long key, Integer id) {
+        index.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    /**
+     * Ids whose key lies in [fromInclusive, toExclusive), in key order.
+     */
+    List<Integer> range(long fromInclusive, long toExclusive) {
+        return range(fromInclusive, toExclusive, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Like range, but stops walking once at least maxIds ids have been collected.
+     */
+    List<Integer> range(long fromInclusive, long toExclusive, int maxIds) {
+        List<Integer> result = new ArrayList<>();
+        if (fromInclusive >= toExclusive) {
+            return result;
+        }
+        NavigableMap<Long, Set<Integer>> slice = index.subMap(fromInclusive, true, toExclusive, false);
+        for (Set<Integer> ids : slice.values()) {
+            result.addAll(ids);
+            if (result.size() >= maxIds) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    void clear() {
+        index.clear();
+    }
+}
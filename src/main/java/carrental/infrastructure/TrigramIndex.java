@@ -0,0 +1,85 @@
+package carrental.infrastructure;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Inverted index from lower-cased character trigrams to entity ids, used to narrow substring searches.
+ * Each trigram is packed into a long, so no substrings are allocated while indexing or querying.
+ */
+class TrigramIndex {
+    static final int GRAM = 3;
+
+    private final IdSetIndex<Long> postings = new IdSetIndex<>();
+
+    void add(Integer id, String text) {
+        if (text == null) {
+            return;
+        }
+        String folded = fold(text);
+        for (int i = 0; i + GRAM <= folded.length(); i++) {
+            postings.add(gram(folded, i), id);
+        }
+    }
+
+    // Stages the trigrams of text for a later addAll, for bulk builds
+    static void stage(IdGroups<Long> groups, Integer id, String text) {
+        if (text == null) {
+            return;
+        }
+        String folded = fold(text);
+        for (int i = 0; i + GRAM <= folded.length(); i++) {
+            groups.add(gram(folded, i), id);
+        }
+    }
+
+    void addAll(IdGroups<Long> groups) {
+        postings.addAll(groups);
+    }
+
+    void remove(Integer id, String text) {
+        if (text == null) {
+            return;
+        }
+        String folded = fold(text);
+        for (int i = 0; i + GRAM <= folded.length(); i++) {
+            postings.remove(gram(folded, i), id);
+        }
+    }
+
+    /**
+     * Smallest posting list among the query's trigrams; a superset of the real matches.
+     * Returns null when the query is shorter than a trigram and the caller has to scan.
+     */
+    Set<Integer> candidates(String query) {
+        String folded = fold(query);
+        if (folded.length() < GRAM) {
+            return null;
+        }
+        Set<Integer> smallest = null;
+        for (int i = 0; i + GRAM <= folded.length(); i++) {
+            Set<Integer> ids = postings.get(gram(folded, i));
+            if (smallest == null || ids.size() < smallest.size()) {
+                smallest = ids;
+                if (smallest.isEmpty()) {
+                    break;
+                }
+            }
+        }
+        return smallest;
+    }
+
+    void clear() {
+        postings.clear();
+    }
+
+    static String fold(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private static long gram(String text, int offset) {
+        return ((long) text.charAt(offset) << 32)
+                | ((long) text.charAt(offset + 1) << 16)
+                | text.charAt(offset + 2);
+    }
+}
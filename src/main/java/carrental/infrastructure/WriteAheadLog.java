@@ -0,0 +1,466 @@
+package carrental.infrastructure;
+
+import carrental.domain.model.Car;
+import carrental.domain.model.Customer;
+import carrental.domain.model.Rental;
+import carrental.domain.model.Violation;
+import carrental.domain.repository.CarRepository;
+import carrental.domain.repository.ChangeEvent;
+import carrental.domain.repository.CustomerRepository;
+import carrental.domain.repository.RentalRepository;
+import carrental.domain.repository.UnitOfWork;
+import carrental.domain.repository.ViolationRepository;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.zip.CRC32;
+
+/**
+ * Durable record of every repository write, appended to numbered segment files (wal-&lt;n&gt;.log) in one
+ * directory.
+ *
+ * A segment starts with a magic number, followed by records of [payload length][CRC32 of payload][payload]. The
+ * payload is the source, the change type and the EntityCodec form of the entity as stored after the write (the
+ * removed entity for a delete); the codec's string dictionary spans one segment. Records are appended to an in-memory
+ * batch from inside the repository's lock, which keeps them in the order the writes for each entity were
+ * applied. afterWrite() then makes the writer wait until its record is on disk: the first waiter becomes the
+ * leader and writes and forces everything batched so far with a single force() call, while writers arriving
+ * meanwhile queue up for the next batch. Under concurrency the cost of a force is shared by every write in its
+ * batch.
+ *
+ * Each open starts a new segment, and roll() starts another one so that a snapshot can let older segments be
+ * deleted. replay() restores each logged entity unless the repository already holds that version or a newer
+ * one, so the log can be replayed over a snapshot that already contains some of its writes. A torn record at
+ * the end of a segment, left by a crash mid-append, is cut off.
+ *
+ * The log is fail-stop: after its first failed write, sync() keeps failing and beforeWrite() rejects every
+ * further repository write, so memory does not drift away from what is on disk.
+ */
+public class WriteAheadLog implements ChangeListener, Closeable {
+    private static final int MAX_RECORD_SIZE = 16 << 20;
+    private static final long MAGIC = 0x4352574c4f473032L; // "CRWLOG02"
+    private static final int HEADER_SIZE = 8;
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final CRC32 checksum = new CRC32();
+
+    // Guards pending, encoder, appended and the replaying flag
+    private final Object appendLock = new Object();
+    private Batch pending = new Batch();
+    private final EntityCodec.Encoder encoder = new EntityCodec.Encoder();
+    private long appended;
+    private boolean replaying;
+
+    // Guards the group commit state below
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final Condition committed = commitLock.newCondition();
+    private Batch spare = new Batch();
+    private FileChannel channel;
+    private long segment;
+    private long durable;
+    private long position;
+    private boolean flushing;
+    // Set once and never cleared: after a failed write the log stops accepting writes for good
+    private volatile IOException failure;
+
+    private WriteAheadLog(Path directory) {
+        this.directory = directory;
+    }
+
+    public static WriteAheadLog open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        WriteAheadLog log = new WriteAheadLog(directory);
+        List<Long> segments = log.segments();
+        log.segment = segments.isEmpty() ? 1 : segments.get(segments.size() - 1) + 1;
+        log.channel = log.openSegment(log.segment);
+        log.position = HEADER_SIZE;
+        return log;
+    }
+
+    /**
+     * Replays every segment numbered fromSegment or higher that existed when the log was opened, then rebuilds
+     * the repositories' indexes. The repositories must not be in use yet. Returns the number of records read.
+     */
+    public long replay(long fromSegment, CarRepository cars, CustomerRepository customers,
+                       RentalRepository rentals, ViolationRepository violations) throws IOException {
+        synchronized (appendLock) {
+            replaying = true;
+        }
+        long records = 0;
+        try {
+            for (long number : segments()) {
+                if (number >= fromSegment && number < segment) {
+                    records += replaySegment(segmentPath(number), cars, customers, rentals, violations);
+                }
+            }
+        } finally {
+            synchronized (appendLock) {
+                replaying = false;
+            }
+        }
+        cars.rebuildIndexes();
+        customers.rebuildIndexes();
+        rentals.rebuildIndexes();
+        violations.rebuildIndexes();
+        return records;
+    }
+
+    /**
+     * Closes the current segment and starts the next one, returning its number. Every record appended before
+     * the call is durable in an earlier segment when this returns.
+     */
+    public long roll() throws IOException {
+        commitLock.lock();
+        try {
+            while (flushing) {
+                committed.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw new IllegalStateException("Write-ahead log is unavailable", failure);
+            }
+            Batch batch;
+            long batchEnd;
+            synchronized (appendLock) {
+                batch = pending;
+                pending = spare;
+                batchEnd = appended;
+                encoder.resetDictionary();
+            }
+            try {
+                position = write(channel, batch, position);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            } finally {
+                batch.reset();
+                spare = batch;
+            }
+            durable = batchEnd;
+            FileChannel next = openSegment(segment + 1);
+            channel.close();
+            channel = next;
+            segment++;
+            position = HEADER_SIZE;
+            committed.signalAll();
+            return segment;
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    // Removes segments numbered below the given one; returns how many were deleted
+    public int deleteSegmentsBefore(long number) throws IOException {
+        int deleted = 0;
+        for (long existing : segments()) {
+            if (existing < number && Files.deleteIfExists(segmentPath(existing))) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    // Records appended since the log was opened
+    public long appendedRecords() {
+        synchronized (appendLock) {
+            return appended;
+        }
+    }
+
+    // Once a write to disk has failed, nothing applied from now on could be made durable, so repository writes
+    // are refused before they touch memory. Recovering means restarting from the log. A unit of work rolling
+    // back is still let through, so that its writes are taken back out of memory.
+    @Override
+    public void beforeWrite() {
+        IOException failed = failure;
+        if (failed != null && !rollingBack()) {
+            throw new IllegalStateException("Write-ahead log is unavailable", failed);
+        }
+    }
+
+    @Override
+    public void changed(ChangeEvent.Source source, ChangeEvent.Type type, Integer entityId, Object entity) {
+        synchronized (appendLock) {
+            if (replaying) {
+                return;
+            }
+            encoder.reset();
+            encoder.writeByte(source.ordinal()).writeByte(type.ordinal()).write(source, entity);
+            checksum.reset();
+            checksum.update(encoder.array(), 0, encoder.size());
+            pending.writeInt(encoder.size());
+            pending.writeInt((int) checksum.getValue());
+            pending.write(encoder.array(), 0, encoder.size());
+            appended++;
+        }
+    }
+
+    // Waits until every record appended so far, including this thread's own, has been forced to disk. Inside a
+    // unit of work the wait is put off until the unit finishes, so a multi-write operation waits only once.
+    @Override
+    public void afterWrite() {
+        if (rollingBack()) {
+            return;
+        }
+        UnitOfWork work = UnitOfWork.current();
+        if (work != null) {
+            work.onCompletion(this, this::sync);
+        } else {
+            sync();
+        }
+    }
+
+    private static boolean rollingBack() {
+        UnitOfWork work = UnitOfWork.current();
+        return work != null && work.isRollingBack();
+    }
+
+    public void sync() {
+        long target;
+        synchronized (appendLock) {
+            target = appended;
+        }
+        commitLock.lock();
+        try {
+            while (durable < target) {
+                if (failure != null) {
+                    throw new IllegalStateException("Write-ahead log is unavailable", failure);
+                }
+                if (flushing) {
+                    committed.awaitUninterruptibly();
+                    continue;
+                }
+                flush();
+            }
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    // Called as leader with commitLock held; releases it while writing so the next batch can fill up
+    private void flush() {
+        Batch batch;
+        long batchEnd;
+        synchronized (appendLock) {
+            batch = pending;
+            pending = spare;
+            batchEnd = appended;
+        }
+        flushing = true;
+        FileChannel target = channel;
+        long writeAt = position;
+        commitLock.unlock();
+        IOException error = null;
+        try {
+            writeAt = write(target, batch, writeAt);
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            commitLock.lock();
+        }
+        batch.reset();
+        spare = batch;
+        flushing = false;
+        if (error != null) {
+            failure = error;
+        } else {
+            position = writeAt;
+            durable = batchEnd;
+        }
+        committed.signalAll();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            commitLock.lock();
+            try {
+                channel.close();
+            } finally {
+                commitLock.unlock();
+            }
+        }
+    }
+
+    private static long write(FileChannel target, Batch batch, long writeAt) throws IOException {
+        ByteBuffer buffer = batch.buffer();
+        while (buffer.hasRemaining()) {
+            writeAt += target.write(buffer, writeAt);
+        }
+        target.force(false);
+        return writeAt;
+    }
+
+    private long replaySegment(Path file, CarRepository cars, CustomerRepository customers,
+                               RentalRepository rentals, ViolationRepository violations) throws IOException {
+        long records = 0;
+        long validEnd = HEADER_SIZE;
+        try (FileChannel segmentChannel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Channels.newInputStream(segmentChannel), 1 << 16));
+            try {
+                if (in.readLong() != MAGIC) {
+                    throw new IllegalStateException("Not a change log segment: " + file);
+                }
+            } catch (EOFException e) {
+                // Created but never written to
+                return 0;
+            }
+            byte[] payload = new byte[256];
+            CRC32 crc = new CRC32();
+            EntityCodec.Decoder decoder = new EntityCodec.Decoder();
+            while (true) {
+                int length;
+                int expected;
+                try {
+                    length = in.readInt();
+                    expected = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_SIZE) {
+                        break;
+                    }
+                    if (payload.length < length) {
+                        payload = new byte[Math.max(length, payload.length * 2)];
+                    }
+                    in.readFully(payload, 0, length);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != expected) {
+                    break;
+                }
+                apply(decoder.from(ByteBuffer.wrap(payload, 0, length)), cars, customers, rentals, violations);
+                records++;
+                validEnd += 8 + length;
+            }
+            if (validEnd < segmentChannel.size()) {
+                segmentChannel.truncate(validEnd);
+                segmentChannel.force(true);
+            }
+        }
+        return records;
+    }
+
+    private static void apply(EntityCodec.Decoder in, CarRepository cars, CustomerRepository customers,
+                              RentalRepository rentals, ViolationRepository violations) {
+        ChangeEvent.Source source = ChangeEvent.Source.values()[in.readByte()];
+        ChangeEvent.Type type = ChangeEvent.Type.values()[in.readByte()];
+        Object entity = in.read(source);
+        Integer id = EntityCodec.idOf(source, entity);
+        long version = EntityCodec.versionOf(source, entity);
+        switch (source) {
+            case CAR:
+                apply(type, id, version, (Car) entity,
+                        cars::findById, car -> car.getVersion(), cars::restore, cars::delete);
+                break;
+            case CUSTOMER:
+                apply(type, id, version, (Customer) entity,
+                        customers::findById, customer -> customer.getVersion(), customers::restore, customers::delete);
+                break;
+            case RENTAL:
+                apply(type, id, version, (Rental) entity,
+                        rentals::findById, rental -> rental.getVersion(), rentals::restore, rentals::delete);
+                break;
+            case VIOLATION:
+                apply(type, id, version, (Violation) entity,
+                        violations::findById, violation -> violation.getVersion(), violations::restore,
+                        violations::delete);
+                break;
+            default:
+                throw new IllegalStateException("Unknown change source: " + source);
+        }
+    }
+
+    // A record only moves an entity forward: older versions are skipped, which makes replay idempotent
+    private static <T> void apply(ChangeEvent.Type type, Integer id, long version, T entity,
+                                  Function<Integer, Optional<T>> find, ToLongFunction<T> versionOf,
+                                  Consumer<T> restore, Consumer<Integer> delete) {
+        Optional<T> current = find.apply(id);
+        if (type == ChangeEvent.Type.DELETED) {
+            if (current.isPresent() && versionOf.applyAsLong(current.get()) <= version) {
+                delete.accept(id);
+            }
+        } else if (!current.isPresent() || versionOf.applyAsLong(current.get()) < version) {
+            restore.accept(entity);
+        }
+    }
+
+    private List<Long> segments() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        FileChannel opened = FileChannel.open(segmentPath(number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putLong(0, MAGIC);
+            while (header.hasRemaining()) {
+                opened.write(header);
+            }
+            opened.force(true);
+        } catch (IOException e) {
+            opened.close();
+            throw e;
+        }
+        return opened;
+    }
+
+    // A byte buffer that can be handed to the channel without copying
+    private static final class Batch extends ByteArrayOutputStream {
+        Batch() {
+            super(1 << 16);
+        }
+
+        ByteBuffer buffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+
+        void writeInt(int value) {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package carrental.domain.service;
+
+import carrental.domain.model.Car;
+import carrental.domain.model.CarStatus;
+import carrental.domain.model.Customer;
+import carrental.domain.model.Rental;
+import carrental.domain.model.RentalStatus;
+import carrental.infrastructure.InMemoryCarRepository;
+import carrental.infrastructure.InMemoryCustomerRepository;
+import carrental.infrastructure.InMemoryRentalRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.RepeatedTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CarReservationEngineTest {
+    private static final int THREADS = 8;
+
+    private InMemoryCarRepository cars;
+    private InMemoryCustomerRepository customers;
+    private InMemoryRentalRepository rentals;
+    private RentalService rentalService;
+    private ExecutorService pool;
+
+    @BeforeEach
+    void setUp() {
+        cars = new InMemoryCarRepository();
+        customers = new InMemoryCustomerRepository();
+        rentals = new InMemoryRentalRepository();
+        rentalService = new RentalService(rentals, cars, customers);
+        pool = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        pool.shutdownNow();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @RepeatedTest(20)
+    void onlyOneOfManyBookingsForTheSameCarSucceeds() throws Exception {
+        int carId = addCar(0);
+        int[] customerIds = addCustomers(THREADS);
+
+        List<Rental> booked = race(i -> () -> rentalService.createRental(customerIds[i], carId,
+                "2024-01-01", "2024-01-05", 100, "PAID"));
+
+        assertEquals(1, booked.size());
+        assertEquals(CarStatus.RENTED, cars.findById(carId).get().getStatus());
+        assertEquals(1, rentals.findAll().stream().filter(r -> r.getStatus() == RentalStatus.ACTIVE).count());
+    }
+
+    @RepeatedTest(20)
+    void bookingsForDifferentCarsAllSucceed() throws Exception {
+        int[] carIds = new int[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            carIds[i] = addCar(i);
+        }
+        int[] customerIds = addCustomers(THREADS);
+
+        List<Rental> booked = race(i -> () -> rentalService.createRental(customerIds[i], carIds[i],
+                "2024-01-01", "2024-01-05", 100, "PAID"));
+
+        assertEquals(THREADS, booked.size());
+        for (int carId : carIds) {
+            assertEquals(CarStatus.RENTED, cars.findById(carId).get().getStatus());
+        }
+    }
+
+    // Starts all bookings at once and returns the ones that went through; a lost race must fail with
+    // IllegalStateException rather than anything else
+    private List<Rental> race(IntFunction<Callable<Rental>> bookings) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Rental>> futures = new ArrayList<>(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            Callable<Rental> booking = bookings.apply(i);
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    return booking.call();
+                } catch (IllegalStateException e) {
+                    return null;
+                }
+            }));
+        }
+        start.countDown();
+
+        List<Rental> booked = new ArrayList<>();
+        for (Future<Rental> future : futures) {
+            Rental rental = future.get(10, TimeUnit.SECONDS);
+            if (rental != null) {
+                booked.add(rental);
+            }
+        }
+        return booked;
+    }
+
+    private int addCar(int n) {
+        return cars.save(new Car(null, String.format("VIN%014d", n), "A" + n + "BC", "Toyota", "Corolla",
+                CarStatus.AVAILABLE, 10)).getCarId();
+    }
+
+    private int[] addCustomers(int count) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = customers.save(new Customer(null, "Customer " + i, 1000000L + i, 2000000L + i,
+                    3000000L + i, "Street " + i)).getCustomerId();
+        }
+        return ids;
+    }
+}
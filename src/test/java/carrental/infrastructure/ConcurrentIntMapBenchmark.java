@@ -0,0 +1,91 @@
+package carrental.infrastructure;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Per-entry memory and findById-style lookup cost of ConcurrentIntMap against ConcurrentHashMap&lt;Integer, V&gt;
+ * at millions of dense ids. Not a unit test; run it after mvn test-compile with
+ *
+ *   java -XX:+UseSerialGC -Xmx2g -cp target/classes:target/test-classes carrental.infrastructure.ConcurrentIntMapBenchmark [entries]
+ *
+ * Every entry maps to the same value object, so the memory figures are the map's own overhead per entry.
+ */
+public final class ConcurrentIntMapBenchmark {
+    private static final Object VALUE = new Object();
+    private static final int ROUNDS = 5;
+
+    private ConcurrentIntMapBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int[] probes = new int[1 << 20];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = 1 + ThreadLocalRandom.current().nextInt(entries);
+        }
+
+        // The paged map goes first: garbage left behind by the much larger hash map skews a later baseline
+        double[] paged = measureIntMap(entries, probes);
+        double[] hash = measureHashMap(entries, probes);
+
+        System.out.printf("%,d entries%n", entries);
+        System.out.printf("ConcurrentHashMap  %6.1f bytes/entry  %6.1f ns/get%n", hash[0], hash[1]);
+        System.out.printf("ConcurrentIntMap   %6.1f bytes/entry  %6.1f ns/get%n", paged[0], paged[1]);
+    }
+
+    // Each map is built and dropped inside its own method, so neither is still reachable while the other is measured
+    private static double[] measureHashMap(int entries, int[] probes) {
+        long before = usedMemory();
+        Map<Integer, Object> map = new ConcurrentHashMap<>();
+        for (int id = 1; id <= entries; id++) {
+            map.put(id, VALUE);
+        }
+        double bytes = (usedMemory() - before) / (double) entries;
+        return new double[] {bytes, lookups(probes, map::get)};
+    }
+
+    private static double[] measureIntMap(int entries, int[] probes) {
+        long before = usedMemory();
+        ConcurrentIntMap<Object> map = new ConcurrentIntMap<>();
+        for (int id = 1; id <= entries; id++) {
+            map.put(id, VALUE);
+        }
+        double bytes = (usedMemory() - before) / (double) entries;
+        return new double[] {bytes, lookups(probes, map::get)};
+    }
+
+    private interface Lookup {
+        Object get(int id);
+    }
+
+    // Best of several rounds over random ids, after one warm-up round
+    private static double lookups(int[] probes, Lookup lookup) {
+        double best = Double.MAX_VALUE;
+        int found = 0;
+        for (int round = 0; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int id : probes) {
+                if (lookup.get(id) != null) {
+                    found++;
+                }
+            }
+            if (round > 0) {
+                best = Math.min(best, (System.nanoTime() - start) / (double) probes.length);
+            }
+        }
+        if (found != probes.length * (ROUNDS + 1)) {
+            throw new IllegalStateException("Lookups missed " + (probes.length * (ROUNDS + 1) - found) + " ids");
+        }
+        return best;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
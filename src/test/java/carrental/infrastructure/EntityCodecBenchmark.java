@@ -0,0 +1,118 @@
+package carrental.infrastructure;
+
+import carrental.domain.model.Car;
+import carrental.domain.model.CarStatus;
+import carrental.domain.model.Customer;
+import carrental.domain.model.Dates;
+import carrental.domain.model.DepositStatus;
+import carrental.domain.model.Rental;
+import carrental.domain.model.RentalStatus;
+import carrental.domain.model.Violation;
+import carrental.domain.model.ViolationStatus;
+import carrental.domain.repository.ChangeEvent;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Encoded size and encode/decode throughput of EntityCodec for each entity type. Not a unit test; run it after
+ * mvn test-compile with
+ *
+ *   java -Xmx2g -cp target/classes:target/test-classes carrental.infrastructure.EntityCodecBenchmark [entities]
+ *
+ * Entities are encoded in blocks of SnapshotStore.BLOCK_ENTITIES with a fresh dictionary per block, the way
+ * snapshots write them; every decoded entity is checked against its source id.
+ */
+public final class EntityCodecBenchmark {
+    private static final int ROUNDS = 5;
+    private static final String[] BRANDS = {"Toyota", "BMW", "Audi", "Ford", "Kia"};
+
+    private EntityCodecBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int entities = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.printf("%,d entities per type, blocks of %,d%n", entities, SnapshotStore.BLOCK_ENTITIES);
+        measure(ChangeEvent.Source.CAR, entities, EntityCodecBenchmark::car);
+        measure(ChangeEvent.Source.CUSTOMER, entities, EntityCodecBenchmark::customer);
+        measure(ChangeEvent.Source.RENTAL, entities, EntityCodecBenchmark::rental);
+        measure(ChangeEvent.Source.VIOLATION, entities, EntityCodecBenchmark::violation);
+    }
+
+    private static void measure(ChangeEvent.Source source, int count, IntFunction<Object> entity) {
+        Object[] entities = new Object[count];
+        for (int i = 0; i < count; i++) {
+            entities[i] = entity.apply(i + 1);
+        }
+        int blockCount = (count + SnapshotStore.BLOCK_ENTITIES - 1) / SnapshotStore.BLOCK_ENTITIES;
+        byte[][] blocks = new byte[blockCount][];
+        EntityCodec.Encoder encoder = new EntityCodec.Encoder();
+
+        // Best of several rounds, after one warm-up round
+        long bestEncode = Long.MAX_VALUE;
+        long bestDecode = Long.MAX_VALUE;
+        long bytes = 0;
+        for (int round = 0; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            bytes = 0;
+            for (int block = 0; block < blockCount; block++) {
+                encoder.reset();
+                encoder.resetDictionary();
+                int end = Math.min(count, (block + 1) * SnapshotStore.BLOCK_ENTITIES);
+                for (int i = block * SnapshotStore.BLOCK_ENTITIES; i < end; i++) {
+                    encoder.write(source, entities[i]);
+                }
+                blocks[block] = Arrays.copyOf(encoder.array(), encoder.size());
+                bytes += encoder.size();
+            }
+            long encoded = System.nanoTime();
+            decodeAll(source, blocks, count);
+            long decoded = System.nanoTime();
+            if (round > 0) {
+                bestEncode = Math.min(bestEncode, encoded - start);
+                bestDecode = Math.min(bestDecode, decoded - encoded);
+            }
+        }
+        System.out.printf("%-9s %6.1f bytes/entity  encode %6.2f M/s  decode %6.2f M/s%n", source,
+                bytes / (double) count, count * 1e3 / bestEncode, count * 1e3 / bestDecode);
+    }
+
+    private static void decodeAll(ChangeEvent.Source source, byte[][] blocks, int count) {
+        int expectedId = 1;
+        for (byte[] block : blocks) {
+            EntityCodec.Decoder decoder = new EntityCodec.Decoder(ByteBuffer.wrap(block));
+            int end = Math.min(count + 1, expectedId + SnapshotStore.BLOCK_ENTITIES);
+            for (; expectedId < end; expectedId++) {
+                Object entity = decoder.read(source);
+                if (EntityCodec.idOf(source, entity) != expectedId) {
+                    throw new IllegalStateException("Decoded " + source + " " + EntityCodec.idOf(source, entity)
+                            + " where " + expectedId + " was expected");
+                }
+            }
+        }
+    }
+
+    private static Car car(int id) {
+        return new Car(id, "VIN" + (100000 + id), "A" + id + "BC", BRANDS[id % BRANDS.length], "Model" + (id % 20),
+                CarStatus.values()[id % CarStatus.values().length], 10 + id % 90, id % 7);
+    }
+
+    private static Customer customer(int id) {
+        return new Customer(id, "Customer Name " + id, 4000000000L + id, 5000000000L + id, 79990000000L + id,
+                id + " Long Street Name, City", id % 5);
+    }
+
+    private static Rental rental(int id) {
+        int month = 1 + id % 9;
+        return new Rental(id, 1 + id % 50000, 1 + id % 2000, "2024-0" + month + "-1" + id % 10,
+                "2024-0" + month + "-2" + id % 9, 100 + id % 900, DepositStatus.PAID,
+                id % 10 == 0 ? RentalStatus.ACTIVE : RentalStatus.COMPLETED);
+    }
+
+    private static Violation violation(int id) {
+        String dateTime = "2024-03-1" + id % 10 + " 1" + id % 10 + ":3" + id % 6;
+        return new Violation(id, 1 + id % 100000, dateTime, Dates.parseEpochMinute(dateTime), "Speeding",
+                25 + id % 500, ViolationStatus.values()[id % ViolationStatus.values().length], id % 3);
+    }
+}